@@ -1,5 +1,7 @@
 package com.github.tocrhz.mqtt.annotation;
 
+import com.github.tocrhz.mqtt.subscriber.DispatchPolicy;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -45,4 +47,77 @@ public @interface MqttSubscribe {
      * @return String[] groups
      */
     String[] groups() default "";
+
+    /**
+     * Threads used to handle messages of this method.
+     * <p>
+     * -1: use the dispatcher of the client ('mqtt.dispatch.*'),
+     * 0: handle in the receiving thread,
+     * greater than 0: use dedicated threads.
+     *
+     * @return threads
+     */
+    int threads() default -1;
+
+    /**
+     * Queue capacity of the dedicated threads, only used when threads greater than 0.
+     * <p>
+     * For a method with a 'Flux&lt;T&gt;' parameter, it is the buffer size between the client and the Flux.
+     *
+     * @return queue capacity
+     */
+    int queueCapacity() default 1024;
+
+    /**
+     * What to do when the queue of the dedicated threads is full, only used when threads greater than 0.
+     * <p>
+     * For a method with a 'Flux&lt;T&gt;' parameter, DROP drops messages when the buffer is full, others wait for demand.
+     *
+     * @return DispatchPolicy
+     */
+    DispatchPolicy rejectedPolicy() default DispatchPolicy.BLOCK;
+
+    /**
+     * Name of the topic parameter used as ordering key, e.g. 'id' for 'dev/{id}/telemetry'.
+     * <p>
+     * Messages with the same key are handled in order by one thread, different keys in parallel.
+     * Used by dedicated threads (threads greater than 0), or by the client's dispatcher when 'mqtt.dispatch.ordered' is true.
+     * If blank, or not a parameter of the topic, the full topic is the key.
+     * A warning is logged at startup when the key is not a topic parameter, or when the client's dispatcher is not ordered.
+     *
+     * @return ordering key
+     */
+    String orderingKey() default "";
+
+    /**
+     * Handle messages in batches, the method is invoked once per batch.
+     * <p>
+     * Only 'List' (or 'Collection') parameters are filled, one element per message:
+     * 'List&lt;MqttMessage&gt;' for the messages, 'List&lt;String&gt;' without '@Payload' for the topics,
+     * others for the payloads converted to the element type.
+     * <p>
+     * 0: disabled, greater than 0: maximum messages of a batch.
+     *
+     * @return batch size
+     */
+    int batchSize() default 0;
+
+    /**
+     * Maximum milliseconds the first message of a batch waits before the batch is handled,
+     * only used when batchSize greater than 0. 0: wait until the batch is full.
+     *
+     * @return batch timeout in milliseconds
+     */
+    long batchTimeoutMs() default 1000;
+
+    /**
+     * Name of the {@link com.github.tocrhz.mqtt.convert.PayloadCodec} used to decode the payload parameters,
+     * e.g. "json", "cbor", "smile", "msgpack". '@Payload(codec)' takes precedence.
+     * Parameters of byte[], ByteBuffer, InputStream or PayloadView receive the raw payload and are not decoded.
+     * <p>
+     * Empty: use the default conversion (PayloadDeserialize).
+     *
+     * @return codec name
+     */
+    String codec() default "";
 }
@@ -35,4 +35,35 @@ public @interface Payload {
      * @return boolean
      */
     boolean required() default false;
+
+    /**
+     * When a message matches several subscribe methods, the payload is converted once per target type and converters,
+     * and the same object is passed to every method.
+     * <p>
+     * Set to false if this method modifies the object, then it gets its own copy.
+     *
+     * @return boolean
+     */
+    boolean shared() default true;
+
+    /**
+     * JSON Pointer of the value to bind, e.g. {@code "/metrics/temp"} or {@code "/items/0/id"}.
+     * <p>
+     * Only the requested values are read with a streaming parser, other fields are skipped without binding,
+     * and parsing stops once all paths of the method are found. All path parameters of one method share one pass.
+     * Converters in {@link #value()} are not applied. Requires jackson-core.
+     *
+     * @return String
+     */
+    String path() default "";
+
+    /**
+     * Name of the {@link com.github.tocrhz.mqtt.convert.PayloadCodec} used to decode this parameter, e.g. "cbor", "smile", "msgpack".
+     * <p>
+     * Empty: use the codec of '@MqttSubscribe', or the default conversion when that is empty too.
+     * Ignored for byte[], ByteBuffer, InputStream and PayloadView, which receive the raw payload.
+     *
+     * @return codec name
+     */
+    String codec() default "";
 }
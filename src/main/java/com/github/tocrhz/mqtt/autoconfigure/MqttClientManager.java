@@ -54,7 +54,7 @@ public class MqttClientManager implements DisposableBean, ApplicationListener<Ap
         // 填充默认值
         this.properties.merge(properties);
         MqttConnectOptions options = this.properties.toOptions(properties);
-        return clientNew(clientId, options, properties.getDefaultPublishQos());
+        return clientNew(clientId, options, properties.getDefaultPublishQos(), properties);
     }
 
     void clientNew(String clientId, MqttConnectOptions options) {
@@ -63,10 +63,18 @@ public class MqttClientManager implements DisposableBean, ApplicationListener<Ap
 
     public SimpleMqttClient clientNew(String clientId, MqttConnectOptions options, Integer defaultPublishQos) {
         Assert.hasText(clientId, "clientId is required.");
+        return clientNew(clientId, options, defaultPublishQos, this.properties.getConnection(clientId));
+    }
+
+    private SimpleMqttClient clientNew(String clientId, MqttConnectOptions options, Integer defaultPublishQos, MqttConnectionProperties connection) {
+        // 先断开连接, 释放持久化文件的锁后再创建新的客户端
+        if (clients.containsKey(clientId)) {
+            this.clientClose(clientId, true);
+        }
         // 创建客户端
         IMqttAsyncClient client;
         try {
-            client = adapter.postCreate(clientId, options.getServerURIs());
+            client = adapter.postCreate(clientId, options.getServerURIs(), connection);
         } catch (MqttException e) {
             log.error("create mqtt client error: {}", e.getMessage(), e);
             throw new RuntimeException(e);
@@ -74,12 +82,12 @@ public class MqttClientManager implements DisposableBean, ApplicationListener<Ap
         // 创建topic
         boolean enableShared = this.properties.isEnableSharedSubscription(clientId);
         int qos = defaultPublishQos != null ? defaultPublishQos : this.properties.getDefaultPublishQos(clientId);
+        // 当前客户端的订阅方法, 只在创建时筛选一次
+        MqttSubscriber[] eligible = subscribers.stream()
+                .filter(subscriber -> subscriber.containsClientId(clientId))
+                .toArray(MqttSubscriber[]::new);
         // 创建客户端对象
-        SimpleMqttClient smc = new SimpleMqttClient(clientId, client, options, enableShared, qos, subscribers, adapter);
-        // 先断开连接
-        if (clients.containsKey(clientId)) {
-            this.clientClose(clientId, true);
-        }
+        SimpleMqttClient smc = new SimpleMqttClient(clientId, client, options, enableShared, qos, eligible, adapter, connection);
         clients.put(clientId, smc);
         // 如果没有默认，则设置默认
         if (defaultClientId == null) {
@@ -154,6 +162,7 @@ public class MqttClientManager implements DisposableBean, ApplicationListener<Ap
         });
         clients.clear();
         // 清空订阅处理方法缓存
+        subscribers.forEach(MqttSubscriber::close);
         subscribers.clear();
         // 清空类型转换缓存
         MqttConversionService.destroy();
@@ -1,6 +1,7 @@
 package com.github.tocrhz.mqtt.autoconfigure;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.Version;
@@ -10,16 +11,26 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.github.tocrhz.mqtt.convert.MqttConversionService;
 import com.github.tocrhz.mqtt.convert.PayloadDeserialize;
 import com.github.tocrhz.mqtt.convert.PayloadSerialize;
+import com.github.tocrhz.mqtt.convert.jackson.JacksonAccelerator;
+import com.github.tocrhz.mqtt.convert.jackson.JacksonPayloadCodec;
 import com.github.tocrhz.mqtt.convert.jackson.JacksonPayloadDeserialize;
 import com.github.tocrhz.mqtt.convert.jackson.JacksonPayloadSerialize;
+import com.github.tocrhz.mqtt.convert.jackson.JacksonPayloadViewDeserialize;
 import com.github.tocrhz.mqtt.convert.jackson.JacksonStringDeserialize;
 import com.github.tocrhz.mqtt.convert.jackson.JacksonStringSerialize;
+import com.github.tocrhz.mqtt.properties.JacksonProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
@@ -41,16 +52,25 @@ import java.util.Map;
 @ConditionalOnClass(ObjectMapper.class)
 @Configuration
 public class PayloadJacksonAutoConfiguration {
+    private final static Logger log = LoggerFactory.getLogger(PayloadJacksonAutoConfiguration.class);
 
-    public PayloadJacksonAutoConfiguration(ListableBeanFactory beanFactory) {
+    public PayloadJacksonAutoConfiguration(ListableBeanFactory beanFactory, Environment environment) {
         MqttConversionService registry = MqttConversionService.getSharedInstance();
 
         ObjectMapper objectMapper = objectMapper();
+        JacksonProperties properties = Binder.get(environment).bind("mqtt.jackson", JacksonProperties.class).orElseGet(JacksonProperties::new);
+        registerAccelerator(objectMapper, properties.getAccelerator());
+        // 按名称选择的编码, 二进制格式只在引入对应的依赖后注册
+        registry.addCodec(new JacksonPayloadCodec("json", objectMapper));
+        registerCodec(registry, "cbor", "com.fasterxml.jackson.dataformat.cbor.CBORFactory", properties.getAccelerator());
+        registerCodec(registry, "smile", "com.fasterxml.jackson.dataformat.smile.SmileFactory", properties.getAccelerator());
+        registerCodec(registry, "msgpack", "org.msgpack.jackson.dataformat.MessagePackFactory", properties.getAccelerator());
         // 默认转换类
         Map<String, PayloadDeserialize> deserializeMap = beanFactory.getBeansOfType(PayloadDeserialize.class);
         if (deserializeMap.isEmpty()) {
             registry.addConverterFactory(jacksonPayloadDeserialize(objectMapper));
             registry.addConverterFactory(jacksonStringDeserialize(objectMapper));
+            registry.addConverterFactory(jacksonPayloadViewDeserialize(objectMapper));
         } else {
             deserializeMap.values().forEach(registry::addConverterFactory);
         }
@@ -64,7 +84,10 @@ public class PayloadJacksonAutoConfiguration {
     }
 
     public ObjectMapper objectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
+        return objectMapper(new ObjectMapper());
+    }
+
+    public ObjectMapper objectMapper(ObjectMapper objectMapper) {
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
         objectMapper.disable(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES);
@@ -73,6 +96,56 @@ public class PayloadJacksonAutoConfiguration {
         return objectMapper;
     }
 
+    /**
+     * 注册二进制格式的编码, JsonFactory 不存在时跳过
+     *
+     * @param registry     MqttConversionService
+     * @param name         编码名称
+     * @param factoryClass JsonFactory 的类名
+     * @param accelerator  使用的加速模块
+     */
+    public void registerCodec(MqttConversionService registry, String name, String factoryClass, JacksonAccelerator accelerator) {
+        ClassLoader classLoader = PayloadJacksonAutoConfiguration.class.getClassLoader();
+        if (!ClassUtils.isPresent(factoryClass, classLoader)) {
+            return;
+        }
+        try {
+            JsonFactory factory = (JsonFactory) BeanUtils.instantiateClass(ClassUtils.forName(factoryClass, classLoader));
+            ObjectMapper objectMapper = objectMapper(new ObjectMapper(factory));
+            registerAccelerator(objectMapper, accelerator);
+            registry.addCodec(new JacksonPayloadCodec(name, objectMapper));
+        } catch (Exception e) {
+            log.warn("Register payload codec {} failed: {}", name, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 注册 blackbird 或 afterburner 模块, 依赖不存在时只打印警告
+     *
+     * @param objectMapper ObjectMapper
+     * @param accelerator  使用的模块
+     */
+    public void registerAccelerator(ObjectMapper objectMapper, JacksonAccelerator accelerator) {
+        String className;
+        if (accelerator == JacksonAccelerator.BLACKBIRD) {
+            className = "com.fasterxml.jackson.module.blackbird.BlackbirdModule";
+        } else if (accelerator == JacksonAccelerator.AFTERBURNER) {
+            className = "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+        } else {
+            return;
+        }
+        ClassLoader classLoader = PayloadJacksonAutoConfiguration.class.getClassLoader();
+        if (!ClassUtils.isPresent(className, classLoader)) {
+            log.warn("Jackson accelerator {} not found in classpath: {}", accelerator, className);
+            return;
+        }
+        try {
+            objectMapper.registerModule((com.fasterxml.jackson.databind.Module) BeanUtils.instantiateClass(ClassUtils.forName(className, classLoader)));
+        } catch (Exception e) {
+            log.warn("Register jackson accelerator {} failed: {}", accelerator, e.getMessage(), e);
+        }
+    }
+
     public JacksonPayloadSerialize jacksonPayloadSerialize(ObjectMapper objectMapper) {
         return new JacksonPayloadSerialize(objectMapper);
     }
@@ -81,6 +154,10 @@ public class PayloadJacksonAutoConfiguration {
         return new JacksonPayloadDeserialize(objectMapper);
     }
 
+    public JacksonPayloadViewDeserialize jacksonPayloadViewDeserialize(ObjectMapper objectMapper) {
+        return new JacksonPayloadViewDeserialize(objectMapper);
+    }
+
     public JacksonStringSerialize jacksonStringSerialize(ObjectMapper objectMapper) {
         return new JacksonStringSerialize(objectMapper);
     }
@@ -6,13 +6,18 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.boot.convert.ApplicationConversionService;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.core.convert.converter.ConverterFactory;
 import org.springframework.core.convert.converter.GenericConverter;
 import org.springframework.core.convert.support.GenericConversionService;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author tocrhz
@@ -38,16 +43,37 @@ public class MqttConversionService extends GenericConversionService {
     }
 
     private static void init(MqttConversionService registry) {
-        // 其他默认
+        // 其他默认, 数字和布尔值直接从 byte[] 解析
         registry.addConverter((StringToByteArrayConverter) source -> source.getBytes(StandardCharsets.UTF_8));
         registry.addConverter((ByteArrayToStringConverter) source -> new String(source, StandardCharsets.UTF_8));
-        registry.addConverter((ByteArrayToBooleanConverter) source -> Boolean.parseBoolean(new String(source, StandardCharsets.UTF_8)));
-        registry.addConverter((ByteArrayToByteConverter) source -> Byte.parseByte(new String(source, StandardCharsets.UTF_8)));
-        registry.addConverter((ByteArrayToShortConverter) source -> Short.parseShort(new String(source, StandardCharsets.UTF_8)));
-        registry.addConverter((ByteArrayToIntegerConverter) source -> Integer.parseInt(new String(source, StandardCharsets.UTF_8)));
-        registry.addConverter((ByteArrayToLongConverter) source -> Long.parseLong(new String(source, StandardCharsets.UTF_8)));
-        registry.addConverter((ByteArrayToFloatConverter) source -> Float.parseFloat(new String(source, StandardCharsets.UTF_8)));
-        registry.addConverter((ByteArrayToDoubleConverter) source -> Double.parseDouble(new String(source, StandardCharsets.UTF_8)));
+        registry.addConverter((ByteArrayToBooleanConverter) AsciiNumbers::parseBoolean);
+        registry.addConverter((ByteArrayToByteConverter) AsciiNumbers::parseByte);
+        registry.addConverter((ByteArrayToShortConverter) AsciiNumbers::parseShort);
+        registry.addConverter((ByteArrayToIntegerConverter) AsciiNumbers::parseInt);
+        registry.addConverter((ByteArrayToLongConverter) AsciiNumbers::parseLong);
+        registry.addConverter((ByteArrayToFloatConverter) AsciiNumbers::parseFloat);
+        registry.addConverter((ByteArrayToDoubleConverter) AsciiNumbers::parseDouble);
+        // 不复制数据的视图
+        registry.addConverter(byte[].class, PayloadView.class, PayloadView::of);
+        registry.addConverter(byte[].class, ByteBuffer.class, source -> ByteBuffer.wrap(source).asReadOnlyBuffer());
+        registry.addConverter(byte[].class, InputStream.class, ByteArrayInputStream::new);
+        registry.addConverter(PayloadView.class, byte[].class, PayloadView::toByteArray);
+        registry.addConverter(PayloadView.class, ByteBuffer.class, PayloadView::asByteBuffer);
+        registry.addConverter(PayloadView.class, InputStream.class, PayloadView::asInputStream);
+        registry.addConverter(ByteBuffer.class, byte[].class, MqttConversionService::toBytes);
+    }
+
+    /**
+     * ByteBuffer 转 byte[], 是整个数组时直接返回, 否则复制剩余的部分. 不改变 ByteBuffer 的 position
+     */
+    private static byte[] toBytes(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
     }
 
     public static void addBeans(ListableBeanFactory beanFactory) {
@@ -56,21 +82,92 @@ public class MqttConversionService extends GenericConversionService {
         beanFactory.getBeansOfType(ConverterFactory.class).values().forEach(registry::addConverterFactory);
         beanFactory.getBeansOfType(Converter.class).values().forEach(registry::addConverter);
         beanFactory.getBeansOfType(GenericConverter.class).values().forEach(registry::addConverter);
+        beanFactory.getBeansOfType(PayloadCodec.class).values().forEach(registry::addCodec);
+    }
+
+    /**
+     * 按名称选择的编码, 见 {@link PayloadCodec}
+     */
+    private final ConcurrentHashMap<String, PayloadCodec> codecs = new ConcurrentHashMap<>();
+
+    /**
+     * 添加编码, 名称相同时替换
+     *
+     * @param codec 编码
+     */
+    public void addCodec(PayloadCodec codec) {
+        codecs.put(codec.name(), codec);
+    }
+
+    /**
+     * 按名称取编码
+     *
+     * @param name 编码名称
+     * @return PayloadCodec, 不存在时返回 null
+     */
+    public PayloadCodec getCodec(String name) {
+        return name == null ? null : codecs.get(name);
+    }
+
+    /**
+     * 转换方案, 按 (源类型, 目标类型) 在第一次使用时确定好走哪个转换器, 之后直接调用.
+     * 添加或删除转换器时整体丢弃重新生成.
+     */
+    private volatile Plans plans = new Plans();
+
+    @Override
+    public void addConverter(GenericConverter converter) {
+        super.addConverter(converter);
+        this.plans = new Plans();
+    }
+
+    @Override
+    public void removeConvertible(Class<?> sourceType, Class<?> targetType) {
+        super.removeConvertible(sourceType, targetType);
+        this.plans = new Plans();
     }
 
     public byte[] toBytes(Object source) {
         if (source == null) {
             return null;
         }
-        byte[] convert = toBytes(true, this, source);
-        if (convert == null) {
-            // 如果无法转换, 则使用Spring的转换方法
-            convert = toBytes(false, ApplicationConversionService.getSharedInstance(), source);
+        return (byte[]) plans.toBytes(source.getClass()).convert(source);
+    }
+
+    /**
+     * 对象转为 byte[], 已经是 byte[], ByteBuffer 或 {@link PayloadView} 时不再编码
+     *
+     * @param source 对象
+     * @param codec  编码, 为 null 时使用默认的转换
+     * @return byte[]
+     */
+    public byte[] toBytes(Object source, PayloadCodec codec) {
+        if (codec == null || source == null || source instanceof byte[]
+                || source instanceof ByteBuffer || source instanceof PayloadView) {
+            return toBytes(source);
         }
-        return convert;
+        return codec.encode(source);
     }
 
     public Object fromBytes(byte[] source, Class<?> target, List<Converter<Object, Object>> converters) {
+        return fromBytes(source, target, converters, null);
+    }
+
+    /**
+     * 消息内容转为指定类型
+     *
+     * @param source     消息内容
+     * @param target     目标类型
+     * @param converters 注解中配置的转换方法, 按顺序执行
+     * @param codec      编码, 转换方法执行后的结果为 byte[] 或 {@link PayloadView} 时使用; 为 null 时,
+     *                   或者目标类型为 byte[], {@link PayloadView}, ByteBuffer, InputStream 时使用默认的转换
+     * @return 转换结果, 无法转换时返回 null
+     */
+    public Object fromBytes(byte[] source, Class<?> target, List<Converter<Object, Object>> converters, PayloadCodec codec) {
+        return fromBytes(source, target, converters, codec, null);
+    }
+
+    private Object fromBytes(byte[] source, Class<?> target, List<Converter<Object, Object>> converters, PayloadCodec codec, Conversion conversion) {
         if (source == null) {
             return null;
         }
@@ -94,68 +191,275 @@ public class MqttConversionService extends GenericConversionService {
         if (payload == null) {
             return null;
         }
-        Object convert = fromBytes(true, this, source, target);
-        if (convert == null) {
-            // 如果无法转换, 则使用Spring的转换方法
-            convert = fromBytes(false, ApplicationConversionService.getSharedInstance(), source, target);
+        if (codec != null && !isRaw(target)) {
+            if (payload instanceof PayloadView) {
+                payload = ((PayloadView) payload).toByteArray();
+            }
+            if (payload instanceof byte[]) {
+                return codec.decode((byte[]) payload, target);
+            }
         }
-        return convert;
+        Plan plan = conversion == null ? plans.from(payload.getClass(), target) : conversion.plan(this, payload.getClass());
+        return plan.convert(payload);
     }
 
-    private static byte[] toBytes(boolean self, ConversionService service, Object source) {
-        Class<?> src = source.getClass();
-        try {
-            // 如果本身就是byte[], 直接返回
-            if (src == byte[].class) {
-                return (byte[]) source;
-            }
-            // 如果能直接转byte[], 就直接转 (只有自己才先尝试直接转byte[], 其他的都是先转String）
-            if (self && service.canConvert(src, byte[].class)) {
-                return service.convert(source, byte[].class);
+    /**
+     * 原样取消息内容的类型, 不经过编码
+     */
+    private static boolean isRaw(Class<?> target) {
+        return target == byte[].class || target == PayloadView.class || target == ByteBuffer.class || target == InputStream.class;
+    }
+
+    /**
+     * 字符串转为指定类型, 用于主题中的参数
+     *
+     * @param source 字符串
+     * @param target 目标类型
+     * @return 转换结果, 无法转换时返回 null
+     */
+    public Object fromString(String source, Class<?> target) {
+        if (source == null) {
+            return null;
+        }
+        return plans.from(String.class, target).convert(source);
+    }
+
+    /**
+     * 视图转为指定类型, 默认的 jackson 转换直接读取视图指向的那一段
+     *
+     * @param source 视图
+     * @param target 目标类型
+     * @return 转换结果, 无法转换时返回 null
+     */
+    public Object fromView(PayloadView source, Class<?> target) {
+        if (source == null) {
+            return null;
+        }
+        return plans.from(PayloadView.class, target).convert(source);
+    }
+
+    /**
+     * 目标类型固定的转换, 用于参数解析, 每个参数一个.
+     * <p>
+     * 保存上一次使用的转换方案, 收到消息时不再按 (源类型, 目标类型) 查找;
+     * 添加或删除转换器后转换方案整体替换, 下次使用时重新查找.
+     */
+    public static final class Conversion {
+        private final Class<?> target;
+        private Cached cached;
+
+        public Conversion(Class<?> target) {
+            this.target = target;
+        }
+
+        /**
+         * 消息内容转为目标类型, 见 {@link MqttConversionService#fromBytes(byte[], Class, List, PayloadCodec)}
+         *
+         * @param source     消息内容
+         * @param converters 注解中配置的转换方法, 按顺序执行
+         * @param codec      编码, 为 null 时使用默认的转换
+         * @return 转换结果, 无法转换时返回 null
+         */
+        public Object fromBytes(byte[] source, List<Converter<Object, Object>> converters, PayloadCodec codec) {
+            return getSharedInstance().fromBytes(source, target, converters, codec, this);
+        }
+
+        /**
+         * 字符串转为目标类型
+         *
+         * @param source 字符串
+         * @return 转换结果, 无法转换时返回 null
+         */
+        public Object fromString(String source) {
+            if (source == null) {
+                return null;
             }
-            // 如果不能, 就先转String, 再转为byte
-            if (service.canConvert(src, String.class)) {
-                String temporary = service.convert(source, String.class);
-                if (temporary == null) {
-                    log.warn("convert from '{}' to 'java.lang.String' return null.", src.getName());
-                    return null;
-                }
-                return temporary.getBytes(StandardCharsets.UTF_8);
-            } else {
-                log.warn("convert from '{}' to 'byte[]' return null.", src.getName());
+            return plan(getSharedInstance(), String.class).convert(source);
+        }
+
+        /**
+         * 视图转为目标类型
+         *
+         * @param source 视图
+         * @return 转换结果, 无法转换时返回 null
+         */
+        public Object fromView(PayloadView source) {
+            if (source == null) {
                 return null;
             }
-        } catch (Exception e) {
-            log.error("convert from '{}' to 'byte[]' return null.", src.getName(), e);
-            return null;
+            return plan(getSharedInstance(), PayloadView.class).convert(source);
         }
+
+        private Plan plan(MqttConversionService service, Class<?> src) {
+            // Plans 在添加或删除转换器时整体替换, 用作版本号, 共享实例重建后也会失效
+            Plans plans = service.plans;
+            Cached cached = this.cached;
+            if (cached == null || cached.plans != plans || cached.src != src) {
+                cached = new Cached(plans, src, plans.from(src, target));
+                this.cached = cached;
+            }
+            return cached.plan;
+        }
+    }
+
+    /**
+     * 字段都是 final, 多个线程读写 {@link Conversion#cached} 时不需要加锁
+     */
+    private static final class Cached {
+        private final Plans plans;
+        private final Class<?> src;
+        private final Plan plan;
+
+        private Cached(Plans plans, Class<?> src, Plan plan) {
+            this.plans = plans;
+            this.src = src;
+            this.plan = plan;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Plan {
+        Object convert(Object source);
     }
 
-    private static Object fromBytes(boolean self, ConversionService service, Object source, Class<?> target) {
-        Class<?> src = source.getClass();
-        try {
-            if (target == src) {
-                return source;
+    private final class Plans {
+        private final ConcurrentHashMap<Class<?>, Plan> toBytes = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Class<?>, Plan>> from = new ConcurrentHashMap<>();
+
+        private Plan toBytes(Class<?> src) {
+            Plan plan = toBytes.get(src);
+            if (plan == null) {
+                plan = toBytes.computeIfAbsent(src, MqttConversionService.this::compileToBytes);
             }
-            if (self && src == byte[].class && service.canConvert(src, target)) {
-                return service.convert(source, target);
+            return plan;
+        }
+
+        private Plan from(Class<?> src, Class<?> target) {
+            ConcurrentHashMap<Class<?>, Plan> plans = from.get(src);
+            if (plans == null) {
+                plans = from.computeIfAbsent(src, key -> new ConcurrentHashMap<>());
             }
-            if (src != byte[].class && service.canConvert(src, target)) {
-                return service.convert(source, target);
+            Plan plan = plans.get(target);
+            if (plan == null) {
+                plan = plans.computeIfAbsent(target, key -> compileFrom(src, key));
             }
-            if (service.canConvert(src, target)) {
-                return service.convert(source, target);
+            return plan;
+        }
+    }
+
+    private Plan compileToBytes(Class<?> src) {
+        // 如果本身就是byte[], 直接返回
+        if (src == byte[].class) {
+            return source -> source;
+        }
+        // 自己先尝试直接转byte[], 再转String; 无法转换时使用Spring的转换方法
+        ConversionService spring = ApplicationConversionService.getSharedInstance();
+        Plan self = direct(src, byte[].class);
+        if (self == null) {
+            self = viaString(this, src);
+        }
+        Plan other = viaString(spring, src);
+        Plan plan = fallback(self, other, src, byte[].class);
+        if (plan == null) {
+            return source -> {
+                log.warn("convert from '{}' to 'byte[]' return null.", src.getName());
+                return null;
+            };
+        }
+        return source -> {
+            try {
+                return plan.convert(source);
+            } catch (Exception e) {
+                log.error("convert from '{}' to 'byte[]' return null.", src.getName(), e);
+                return null;
             }
-            if (service.canConvert(src, String.class) && service.canConvert(String.class, target)) {
-                return service.convert(service.convert(source, String.class), target);
-            } else {
+        };
+    }
+
+    private Plan compileFrom(Class<?> src, Class<?> target) {
+        if (target == src) {
+            return source -> source;
+        }
+        // 先使用自己的转换方法, 无法转换(或结果为 null)时使用Spring的转换方法
+        ConversionService spring = ApplicationConversionService.getSharedInstance();
+        Plan self = direct(src, target);
+        if (self == null && src == PayloadView.class) {
+            // 没有视图的转换方法时按 byte[] 转换, 视图为整个数组时不复制
+            self = source -> plans.from(byte[].class, target).convert(((PayloadView) source).toByteArray());
+        }
+        if (self == null) {
+            self = twoStep(this, src, target);
+        }
+        Plan other;
+        if (spring.canConvert(src, target)) {
+            other = source -> spring.convert(source, target);
+        } else {
+            other = twoStep(spring, src, target);
+        }
+        Plan plan = fallback(self, other, src, target);
+        if (plan == null) {
+            return source -> {
                 log.warn("convert from {} to {}", src.getName(), target.getName());
                 return null;
+            };
+        }
+        return source -> {
+            try {
+                return plan.convert(source);
+            } catch (Exception e) {
+                log.error("convert from {} to {}", src.getName(), target.getName(), e);
+                return null;
             }
-        } catch (Exception e) {
-            log.error("convert from {} to {}", src.getName(), target.getName(), e);
+        };
+    }
+
+    /**
+     * 使用自己的转换器直接转换, 跳过每次调用时的转换器查找
+     */
+    private Plan direct(Class<?> src, Class<?> target) {
+        TypeDescriptor sourceType = TypeDescriptor.valueOf(src);
+        TypeDescriptor targetType = TypeDescriptor.valueOf(target);
+        GenericConverter converter = getConverter(sourceType, targetType);
+        if (converter == null) {
             return null;
         }
+        return source -> converter.convert(source, sourceType, targetType);
+    }
+
+    private static Plan viaString(ConversionService service, Class<?> src) {
+        if (!service.canConvert(src, String.class)) {
+            return null;
+        }
+        return source -> {
+            String temporary = service.convert(source, String.class);
+            if (temporary == null) {
+                log.warn("convert from '{}' to 'java.lang.String' return null.", src.getName());
+                return null;
+            }
+            return temporary.getBytes(StandardCharsets.UTF_8);
+        };
     }
-}
 
+    private static Plan twoStep(ConversionService service, Class<?> src, Class<?> target) {
+        if (service.canConvert(src, String.class) && service.canConvert(String.class, target)) {
+            return source -> service.convert(service.convert(source, String.class), target);
+        }
+        return null;
+    }
+
+    private static Plan fallback(Plan first, Plan second, Class<?> src, Class<?> target) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        return source -> {
+            Object value;
+            try {
+                value = first.convert(source);
+            } catch (Exception e) {
+                log.debug("convert from {} to {} failed, try spring conversion: {}", src.getName(), target.getName(), e.getMessage());
+                value = null;
+            }
+            return value != null ? value : second.convert(source);
+        };
+    }
+}
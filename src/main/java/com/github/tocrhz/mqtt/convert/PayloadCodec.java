@@ -0,0 +1,36 @@
+package com.github.tocrhz.mqtt.convert;
+
+/**
+ * 按名称选择的消息编码, 如 json, cbor, smile, msgpack.
+ * <p>
+ * 通过 {@code @MqttSubscribe(codec)}, {@code @Payload(codec)} 或发布时的主题规则(mqtt.codec.rules)选择,
+ * 不影响默认的 {@link PayloadSerialize} 和 {@link PayloadDeserialize}. 注册为 bean 即可使用.
+ *
+ * @author tocrhz
+ */
+public interface PayloadCodec {
+
+    /**
+     * 编码名称, 注解和配置中使用这个名称
+     *
+     * @return String
+     */
+    String name();
+
+    /**
+     * 对象转为 byte[]
+     *
+     * @param source 对象, 不为 null
+     * @return byte[], 失败时返回 null
+     */
+    byte[] encode(Object source);
+
+    /**
+     * byte[] 转为对象
+     *
+     * @param source     消息内容, 不为 null
+     * @param targetType 目标类型
+     * @return 对象, 失败时返回 null
+     */
+    Object decode(byte[] source, Class<?> targetType);
+}
@@ -0,0 +1,117 @@
+package com.github.tocrhz.mqtt.convert;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * 消息内容的只读视图, 指向 byte[] 中的一段, 不复制数据.
+ * <p>
+ * 处理方法的参数可以是 PayloadView, {@link ByteBuffer}(只读) 或 {@link InputStream}, 直接使用 MqttMessage 中的 byte[],
+ * 适合固件, 图片等较大的消息. 转换方法也可以返回 {@link #slice(int, int)} 去掉消息头, 之后的转换(如 json)直接读取这一段.
+ * <p>
+ * 底层的 byte[] 与消息共用, 不要修改.
+ *
+ * @author tocrhz
+ */
+public final class PayloadView {
+    private final byte[] array;
+    private final int offset;
+    private final int length;
+
+    private PayloadView(byte[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static PayloadView of(byte[] array) {
+        return new PayloadView(array, 0, array.length);
+    }
+
+    public static PayloadView of(byte[] array, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > array.length - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", size: " + array.length);
+        }
+        return new PayloadView(array, offset, length);
+    }
+
+    /**
+     * 底层的 byte[], 不要修改
+     *
+     * @return byte[]
+     */
+    public byte[] array() {
+        return array;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+        return array[offset + index];
+    }
+
+    /**
+     * 截取其中一段, 不复制数据
+     *
+     * @param offset 相对当前视图的起始位置
+     * @param length 长度
+     * @return PayloadView
+     */
+    public PayloadView slice(int offset, int length) {
+        if (offset < 0 || length < 0 || offset > this.length - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", size: " + this.length);
+        }
+        return new PayloadView(array, this.offset + offset, length);
+    }
+
+    /**
+     * 只读的 ByteBuffer, position 为 0, 不复制数据
+     *
+     * @return ByteBuffer
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(array, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * 读取这一段的 InputStream, 不复制数据
+     *
+     * @return InputStream
+     */
+    public InputStream asInputStream() {
+        return new ByteArrayInputStream(array, offset, length);
+    }
+
+    /**
+     * 转为 byte[], 视图为整个数组时直接返回底层的 byte[], 否则复制
+     *
+     * @return byte[]
+     */
+    public byte[] toByteArray() {
+        if (offset == 0 && length == array.length) {
+            return array;
+        }
+        return Arrays.copyOfRange(array, offset, offset + length);
+    }
+
+    public String toString(Charset charset) {
+        return new String(array, offset, length, charset);
+    }
+
+    @Override
+    public String toString() {
+        return "PayloadView[offset=" + offset + ", length=" + length + "]";
+    }
+}
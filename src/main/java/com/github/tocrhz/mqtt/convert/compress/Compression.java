@@ -0,0 +1,30 @@
+package com.github.tocrhz.mqtt.convert.compress;
+
+/**
+ * 一种压缩算法的实现, 可选依赖的实现只在依赖存在时才会加载.
+ *
+ * @author tocrhz
+ */
+interface Compression {
+
+    /**
+     * 压缩到 dest 的 offset 位置之后, 压缩后不比原始内容小的没有意义, 所以输出的空间通常只有原始长度
+     *
+     * @param source 原始内容
+     * @param dest   输出
+     * @param offset 输出的起始位置
+     * @return 压缩后的长度, 空间不够时返回 -1
+     */
+    int compress(byte[] source, byte[] dest, int offset);
+
+    /**
+     * 解压, 结果的长度必须与 dest 的长度一致
+     *
+     * @param source 压缩的内容
+     * @param offset 压缩内容的起始位置
+     * @param length 压缩内容的长度
+     * @param dest   输出, 长度为原始长度
+     * @throws IllegalStateException 内容不完整或长度不一致
+     */
+    void decompress(byte[] source, int offset, int length, byte[] dest);
+}
@@ -0,0 +1,45 @@
+package com.github.tocrhz.mqtt.convert.compress;
+
+/**
+ * 消息内容的压缩算法, id 写在压缩后的消息头中, 接收方据此选择解压方式.
+ *
+ * @author tocrhz
+ */
+public enum CompressionAlgorithm {
+    /**
+     * deflate(gzip 使用的算法), 使用 JDK 自带的实现, 不需要其他依赖.
+     */
+    DEFLATE(1),
+    /**
+     * LZ4, 压缩率较低但速度很快, 需要引入 org.lz4:lz4-java.
+     */
+    LZ4(2),
+    /**
+     * zstd, 压缩率和速度都较好, 需要引入 com.github.luben:zstd-jni.
+     */
+    ZSTD(3);
+
+    private final int id;
+
+    CompressionAlgorithm(int id) {
+        this.id = id;
+    }
+
+    /**
+     * 写在消息头中的算法编号
+     *
+     * @return int
+     */
+    public int id() {
+        return id;
+    }
+
+    static CompressionAlgorithm of(int id) {
+        for (CompressionAlgorithm algorithm : values()) {
+            if (algorithm.id == id) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.tocrhz.mqtt.convert.compress;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * deflate 压缩, 每个线程复用一个 Deflater 和 Inflater, 不带 zlib/gzip 头(长度和算法已经在消息头中).
+ *
+ * @author tocrhz
+ */
+final class DeflateCompression implements Compression {
+    private final static ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private final static ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    @Override
+    public int compress(byte[] source, byte[] dest, int offset) {
+        Deflater deflater = DEFLATER.get();
+        try {
+            deflater.setInput(source, 0, source.length);
+            deflater.finish();
+            int position = offset;
+            while (!deflater.finished() && position < dest.length) {
+                position += deflater.deflate(dest, position, dest.length - position);
+            }
+            return deflater.finished() ? position - offset : -1;
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    @Override
+    public void decompress(byte[] source, int offset, int length, byte[] dest) {
+        Inflater inflater = INFLATER.get();
+        try {
+            inflater.setInput(source, offset, length);
+            int position = 0;
+            while (position < dest.length) {
+                int n = inflater.inflate(dest, position, dest.length - position);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                position += n;
+            }
+            if (position != dest.length || !inflater.finished()) {
+                throw new IllegalStateException("inflate length mismatch");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            inflater.reset();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.tocrhz.mqtt.convert.compress;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * LZ4 压缩, lz4-java 为可选依赖, 只在依赖存在时加载.
+ *
+ * @author tocrhz
+ */
+final class Lz4Compression implements Compression {
+    private final LZ4Compressor compressor;
+    private final LZ4SafeDecompressor decompressor;
+
+    Lz4Compression() {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.safeDecompressor();
+    }
+
+    @Override
+    public int compress(byte[] source, byte[] dest, int offset) {
+        try {
+            return compressor.compress(source, 0, source.length, dest, offset, dest.length - offset);
+        } catch (LZ4Exception e) {
+            // 输出空间不够
+            return -1;
+        }
+    }
+
+    @Override
+    public void decompress(byte[] source, int offset, int length, byte[] dest) {
+        int n = decompressor.decompress(source, offset, length, dest, 0, dest.length);
+        if (n != dest.length) {
+            throw new IllegalStateException("lz4 length mismatch");
+        }
+    }
+}
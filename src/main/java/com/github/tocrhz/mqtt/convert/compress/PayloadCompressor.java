@@ -0,0 +1,271 @@
+package com.github.tocrhz.mqtt.convert.compress;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 发布前压缩消息内容, 接收后自动识别并解压.
+ * <p>
+ * 压缩后的格式为 6 字节的消息头加压缩的内容: 1 字节的标记 {@code 0xFE}, 1 字节的算法编号, 4 字节的原始长度(大端).
+ * 接收方只对匹配压缩规则的主题识别消息头; 解压失败的消息按原样处理.
+ * 消息头中的原始长度没有校验, 所以解压前限制为不超过 maxSize 和压缩后长度的 1024 倍, 超过的按原样处理, 发送时超过的不压缩.
+ * <p>
+ * 压缩时每个线程复用一个输出缓冲区, 结果复制为刚好大小的 byte[], 解压时按消息头中的长度直接分配结果,
+ * 所以除了结果本身不会再分配内存. 压缩后不比原始内容小的消息不压缩.
+ *
+ * @author tocrhz
+ */
+public final class PayloadCompressor {
+    private final static Logger log = LoggerFactory.getLogger(PayloadCompressor.class);
+
+    private final static byte MAGIC = (byte) 0xFE;
+    private final static int HEADER = 6;
+    // MQTT 消息最大 256M
+    private final static int MAX_LENGTH = 268435455;
+    // 超过的缓冲区用完不保留
+    private final static int MAX_POOLED = 1 << 20;
+    // 消息头中的原始长度最多为压缩后长度的倍数, deflate 的上限约为 1032
+    private final static int MAX_RATIO = 1024;
+    private final static ThreadLocal<byte[]> BUFFER = new ThreadLocal<>();
+    private final static Compression[] COMPRESSIONS = new Compression[CompressionAlgorithm.values().length + 1];
+
+    static {
+        ClassLoader classLoader = PayloadCompressor.class.getClassLoader();
+        COMPRESSIONS[CompressionAlgorithm.DEFLATE.id()] = new DeflateCompression();
+        if (ClassUtils.isPresent("net.jpountz.lz4.LZ4Factory", classLoader)) {
+            COMPRESSIONS[CompressionAlgorithm.LZ4.id()] = new Lz4Compression();
+        }
+        if (ClassUtils.isPresent("com.github.luben.zstd.Zstd", classLoader)) {
+            COMPRESSIONS[CompressionAlgorithm.ZSTD.id()] = new ZstdCompression();
+        }
+    }
+
+    private final boolean decompress;
+    private final int maxSize;
+    private final boolean[] missing = new boolean[COMPRESSIONS.length];
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressed = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    /**
+     * 创建压缩, 解压后最大 MQTT 消息的长度
+     *
+     * @param decompress 接收时是否识别并解压
+     */
+    public PayloadCompressor(boolean decompress) {
+        this(decompress, MAX_LENGTH);
+    }
+
+    /**
+     * 创建压缩
+     *
+     * @param decompress 接收时是否识别并解压
+     * @param maxSize    解压后的最大长度(字节), 超过的不压缩也不解压
+     */
+    public PayloadCompressor(boolean decompress, int maxSize) {
+        this.decompress = decompress;
+        this.maxSize = Math.max(1, Math.min(maxSize, MAX_LENGTH));
+    }
+
+    /**
+     * 算法的依赖是否存在
+     *
+     * @param algorithm 压缩算法
+     * @return boolean
+     */
+    public static boolean isAvailable(CompressionAlgorithm algorithm) {
+        return algorithm != null && COMPRESSIONS[algorithm.id()] != null;
+    }
+
+    /**
+     * 是否为压缩后的格式
+     *
+     * @param payload 消息内容
+     * @return boolean
+     */
+    public static boolean isCompressed(byte[] payload) {
+        return payload != null && payload.length > HEADER && payload[0] == MAGIC
+                && CompressionAlgorithm.of(payload[1]) != null && length(payload) > 0;
+    }
+
+    /**
+     * 压缩消息内容
+     *
+     * @param payload   原始内容
+     * @param algorithm 压缩算法
+     * @param minSize   小于这个长度的不压缩
+     * @return 压缩后的内容, 不压缩时返回原始内容
+     */
+    public byte[] compress(byte[] payload, CompressionAlgorithm algorithm, int minSize) {
+        if (payload.length < Math.max(minSize, HEADER + 1) || payload.length > maxSize) {
+            skipped.increment();
+            return payload;
+        }
+        Compression compression = COMPRESSIONS[algorithm.id()];
+        if (compression == null) {
+            if (!missing[algorithm.id()]) {
+                missing[algorithm.id()] = true;
+                log.warn("Payload compression {} is not present, send uncompressed.", algorithm);
+            }
+            skipped.increment();
+            return payload;
+        }
+        long start = System.nanoTime();
+        byte[] buffer = buffer(payload.length);
+        int length = compression.compress(payload, buffer, HEADER);
+        if (length < 0 || HEADER + length >= payload.length || (long) length * MAX_RATIO < payload.length) {
+            compressNanos.add(System.nanoTime() - start);
+            skipped.increment();
+            return payload;
+        }
+        buffer[0] = MAGIC;
+        buffer[1] = (byte) algorithm.id();
+        buffer[2] = (byte) (payload.length >>> 24);
+        buffer[3] = (byte) (payload.length >>> 16);
+        buffer[4] = (byte) (payload.length >>> 8);
+        buffer[5] = (byte) payload.length;
+        byte[] result = Arrays.copyOf(buffer, HEADER + length);
+        compressNanos.add(System.nanoTime() - start);
+        compressed.increment();
+        bytesIn.add(payload.length);
+        bytesOut.add(result.length);
+        return result;
+    }
+
+    /**
+     * 识别并解压消息内容
+     *
+     * @param payload 收到的内容
+     * @return 解压后的内容, 不是压缩的格式, 没有开启或解压失败时返回原始内容
+     */
+    public byte[] decompress(byte[] payload) {
+        if (!decompress || !isCompressed(payload)) {
+            return payload;
+        }
+        int id = payload[1];
+        Compression compression = COMPRESSIONS[id];
+        if (compression == null) {
+            if (!missing[id]) {
+                missing[id] = true;
+                log.warn("Payload compression {} is not present, receive compressed.", CompressionAlgorithm.of(id));
+            }
+            return payload;
+        }
+        int length = length(payload);
+        if (length > maxSize || length > (long) (payload.length - HEADER) * MAX_RATIO) {
+            log.debug("Payload declared length {} exceeds limit, use raw payload.", length);
+            return payload;
+        }
+        long start = System.nanoTime();
+        try {
+            byte[] result = new byte[length];
+            compression.decompress(payload, HEADER, payload.length - HEADER, result);
+            decompressNanos.add(System.nanoTime() - start);
+            decompressed.increment();
+            return result;
+        } catch (RuntimeException e) {
+            log.debug("Payload decompress error, use raw payload: {}", e.getMessage());
+            return payload;
+        }
+    }
+
+    private static int length(byte[] payload) {
+        int length = (payload[2] & 0xff) << 24 | (payload[3] & 0xff) << 16 | (payload[4] & 0xff) << 8 | (payload[5] & 0xff);
+        return length > 0 && length <= MAX_LENGTH ? length : -1;
+    }
+
+    /**
+     * 当前线程的输出缓冲区, 压缩后大于原始长度的没有意义, 所以只需要原始长度
+     */
+    private static byte[] buffer(int size) {
+        byte[] buffer = BUFFER.get();
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[size];
+            if (size <= MAX_POOLED) {
+                BUFFER.set(buffer);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * 压缩的消息数量
+     *
+     * @return long
+     */
+    public long compressed() {
+        return compressed.sum();
+    }
+
+    /**
+     * 没有压缩的消息数量(小于 minSize, 压缩后没有变小或依赖不存在)
+     *
+     * @return long
+     */
+    public long skipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * 压缩的消息压缩前的总长度
+     *
+     * @return long
+     */
+    public long bytesIn() {
+        return bytesIn.sum();
+    }
+
+    /**
+     * 压缩的消息压缩后的总长度(包括消息头)
+     *
+     * @return long
+     */
+    public long bytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * 压缩率, 压缩后的总长度 / 压缩前的总长度, 没有压缩过时为 1
+     *
+     * @return double
+     */
+    public double ratio() {
+        long in = bytesIn.sum();
+        return in == 0 ? 1 : (double) bytesOut.sum() / in;
+    }
+
+    /**
+     * 压缩的总耗时(纳秒), 包括压缩后没有变小的消息
+     *
+     * @return long
+     */
+    public long compressNanos() {
+        return compressNanos.sum();
+    }
+
+    /**
+     * 解压的消息数量
+     *
+     * @return long
+     */
+    public long decompressed() {
+        return decompressed.sum();
+    }
+
+    /**
+     * 解压的总耗时(纳秒)
+     *
+     * @return long
+     */
+    public long decompressNanos() {
+        return decompressNanos.sum();
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.tocrhz.mqtt.convert.compress;
+
+import com.github.luben.zstd.Zstd;
+
+/**
+ * zstd 压缩, zstd-jni 为可选依赖, 只在依赖存在时加载.
+ *
+ * @author tocrhz
+ */
+final class ZstdCompression implements Compression {
+    private final static int LEVEL = 3;
+
+    @Override
+    public int compress(byte[] source, byte[] dest, int offset) {
+        long n = Zstd.compressByteArray(dest, offset, dest.length - offset, source, 0, source.length, LEVEL);
+        // 输出空间不够时返回错误码
+        return Zstd.isError(n) ? -1 : (int) n;
+    }
+
+    @Override
+    public void decompress(byte[] source, int offset, int length, byte[] dest) {
+        long n = Zstd.decompressByteArray(dest, 0, dest.length, source, offset, length);
+        if (Zstd.isError(n)) {
+            throw new IllegalStateException(Zstd.getErrorName(n));
+        }
+        if (n != dest.length) {
+            throw new IllegalStateException("zstd length mismatch");
+        }
+    }
+}
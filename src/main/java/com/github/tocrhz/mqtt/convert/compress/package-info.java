@@ -0,0 +1,4 @@
+/**
+ * 消息内容压缩工具包.
+ */
+package com.github.tocrhz.mqtt.convert.compress;
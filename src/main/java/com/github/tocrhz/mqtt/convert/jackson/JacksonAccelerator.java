@@ -0,0 +1,21 @@
+package com.github.tocrhz.mqtt.convert.jackson;
+
+/**
+ * 使用生成的代码代替反射读写对象属性的 jackson 模块, 需要自己引入对应的依赖
+ *
+ * @author tocrhz
+ */
+public enum JacksonAccelerator {
+    /**
+     * 不使用
+     */
+    NONE,
+    /**
+     * jackson-module-blackbird, 基于 LambdaMetafactory, JDK 11 及以上推荐使用
+     */
+    BLACKBIRD,
+    /**
+     * jackson-module-afterburner, 基于字节码生成, 用于 JDK 8
+     */
+    AFTERBURNER
+}
@@ -0,0 +1,38 @@
+package com.github.tocrhz.mqtt.convert.jackson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按类型缓存 ObjectReader 和 ObjectWriter, 第一次使用时确定好序列化方法, 之后不再每次查找.
+ *
+ * @author tocrhz
+ */
+final class JacksonCache {
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    JacksonCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    ObjectReader reader(Class<?> type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = readers.computeIfAbsent(type, objectMapper::readerFor);
+        }
+        return reader;
+    }
+
+    ObjectWriter writer(Class<?> type) {
+        ObjectWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = writers.computeIfAbsent(type, objectMapper::writerFor);
+        }
+        return writer;
+    }
+}
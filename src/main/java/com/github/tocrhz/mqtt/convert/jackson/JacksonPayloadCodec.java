@@ -0,0 +1,67 @@
+package com.github.tocrhz.mqtt.convert.jackson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tocrhz.mqtt.convert.PayloadCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * 基于 jackson 的编码, ObjectMapper 使用不同的 JsonFactory 时即为对应的格式(如 CBORFactory, SmileFactory, MessagePackFactory)
+ */
+public class JacksonPayloadCodec implements PayloadCodec {
+    private final static Logger log = LoggerFactory.getLogger(JacksonPayloadCodec.class);
+
+    private final String name;
+    private final JacksonCache cache;
+
+    public JacksonPayloadCodec(String name, ObjectMapper objectMapper) {
+        this.name = name;
+        this.cache = new JacksonCache(objectMapper);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    /**
+     * 对象转为 byte[], byte[] 直接返回
+     *
+     * @param source 对象, 不为 null
+     * @return byte[]
+     */
+    @Override
+    public byte[] encode(Object source) {
+        try {
+            if (source instanceof byte[]) {
+                return (byte[]) source;
+            }
+            return cache.writer(source.getClass()).writeValueAsBytes(source);
+        } catch (IOException e) {
+            log.warn("Payload encode by {} error: {}", name, e.getMessage(), e);
+        }
+        return null;
+    }
+
+    /**
+     * byte[] 转为对象, 目标类型为 byte[] 时直接返回
+     *
+     * @param source     消息内容, 不为 null
+     * @param targetType 目标类型
+     * @return 对象
+     */
+    @Override
+    public Object decode(byte[] source, Class<?> targetType) {
+        try {
+            if (targetType == byte[].class) {
+                return source;
+            }
+            return cache.reader(targetType).readValue(source);
+        } catch (IOException e) {
+            log.warn("Payload decode by {} error: {}", name, e.getMessage(), e);
+        }
+        return null;
+    }
+}
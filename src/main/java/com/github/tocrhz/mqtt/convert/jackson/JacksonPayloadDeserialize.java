@@ -1,6 +1,7 @@
 package com.github.tocrhz.mqtt.convert.jackson;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.github.tocrhz.mqtt.convert.PayloadDeserialize;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,6 +9,7 @@ import org.springframework.core.convert.converter.Converter;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 默认的json字符串转对象配置
@@ -15,10 +17,11 @@ import java.nio.charset.StandardCharsets;
 public class JacksonPayloadDeserialize implements PayloadDeserialize {
     private final static Logger log = LoggerFactory.getLogger(JacksonPayloadDeserialize.class);
 
-    private final ObjectMapper objectMapper;
+    private final JacksonCache cache;
+    private final ConcurrentHashMap<Class<?>, Converter<byte[], ?>> converters = new ConcurrentHashMap<>();
 
     public JacksonPayloadDeserialize(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+        this.cache = new JacksonCache(objectMapper);
     }
 
     /**
@@ -31,14 +34,23 @@ public class JacksonPayloadDeserialize implements PayloadDeserialize {
     @Override
     @SuppressWarnings("unchecked")
     public <T> Converter<byte[], T> getConverter(Class<T> targetType) {
+        Converter<byte[], ?> converter = converters.get(targetType);
+        if (converter == null) {
+            converter = converters.computeIfAbsent(targetType, this::create);
+        }
+        return (Converter<byte[], T>) converter;
+    }
+
+    private Converter<byte[], ?> create(Class<?> targetType) {
+        ObjectReader reader = cache.reader(targetType);
         return source -> {
             try {
                 if (targetType == byte[].class) {
-                    return (T) source;
+                    return source;
                 } else if (targetType == String.class) {
-                    return (T) new String(source, StandardCharsets.UTF_8);
+                    return new String(source, StandardCharsets.UTF_8);
                 }
-                return objectMapper.readValue(source, targetType);
+                return reader.readValue(source);
             } catch (IOException e) {
                 log.warn("Payload deserialize error: {}", e.getMessage(), e);
             }
@@ -13,10 +13,10 @@ import java.nio.charset.StandardCharsets;
 public class JacksonPayloadSerialize implements PayloadSerialize {
     private final static Logger log = LoggerFactory.getLogger(JacksonPayloadDeserialize.class);
 
-    private final ObjectMapper objectMapper;
+    private final JacksonCache cache;
 
     public JacksonPayloadSerialize(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+        this.cache = new JacksonCache(objectMapper);
     }
 
     /**
@@ -33,7 +33,7 @@ public class JacksonPayloadSerialize implements PayloadSerialize {
             } else if (source instanceof String) {
                 return ((String) source).getBytes(StandardCharsets.UTF_8);
             }
-            return objectMapper.writeValueAsBytes(source);
+            return cache.writer(source.getClass()).writeValueAsBytes(source);
         } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
             log.warn("Payload serialize error: {}", e.getMessage(), e);
         }
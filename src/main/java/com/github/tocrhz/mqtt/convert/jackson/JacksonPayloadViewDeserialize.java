@@ -0,0 +1,61 @@
+package com.github.tocrhz.mqtt.convert.jackson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.tocrhz.mqtt.convert.PayloadView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.convert.converter.ConverterFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 默认的json视图转对象配置, 直接读取视图指向的那一段, 不复制数据
+ */
+public class JacksonPayloadViewDeserialize implements ConverterFactory<PayloadView, Object> {
+    private final static Logger log = LoggerFactory.getLogger(JacksonPayloadViewDeserialize.class);
+
+    private final JacksonCache cache;
+    private final ConcurrentHashMap<Class<?>, Converter<PayloadView, ?>> converters = new ConcurrentHashMap<>();
+
+    public JacksonPayloadViewDeserialize(ObjectMapper objectMapper) {
+        this.cache = new JacksonCache(objectMapper);
+    }
+
+    /**
+     * 获取转换方法
+     *
+     * @param targetType the target type to convert to
+     * @param <T>        目标类型
+     * @return target type object
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Converter<PayloadView, T> getConverter(Class<T> targetType) {
+        Converter<PayloadView, ?> converter = converters.get(targetType);
+        if (converter == null) {
+            converter = converters.computeIfAbsent(targetType, this::create);
+        }
+        return (Converter<PayloadView, T>) converter;
+    }
+
+    private Converter<PayloadView, ?> create(Class<?> targetType) {
+        ObjectReader reader = cache.reader(targetType);
+        return source -> {
+            try {
+                if (targetType == byte[].class) {
+                    return source.toByteArray();
+                } else if (targetType == String.class) {
+                    return source.toString(StandardCharsets.UTF_8);
+                }
+                return reader.readValue(source.array(), source.offset(), source.length());
+            } catch (IOException e) {
+                log.warn("Payload deserialize error: {}", e.getMessage(), e);
+            }
+            return null;
+        };
+    }
+}
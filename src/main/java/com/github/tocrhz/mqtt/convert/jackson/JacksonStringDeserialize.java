@@ -1,6 +1,7 @@
 package com.github.tocrhz.mqtt.convert.jackson;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.convert.converter.Converter;
@@ -8,6 +9,7 @@ import org.springframework.core.convert.converter.ConverterFactory;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 默认的json字符串转对象配置
@@ -15,10 +17,11 @@ import java.nio.charset.StandardCharsets;
 public class JacksonStringDeserialize implements ConverterFactory<String, Object> {
     private final static Logger log = LoggerFactory.getLogger(JacksonStringDeserialize.class);
 
-    private final ObjectMapper objectMapper;
+    private final JacksonCache cache;
+    private final ConcurrentHashMap<Class<?>, Converter<String, ?>> converters = new ConcurrentHashMap<>();
 
     public JacksonStringDeserialize(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+        this.cache = new JacksonCache(objectMapper);
     }
 
     /**
@@ -31,14 +34,23 @@ public class JacksonStringDeserialize implements ConverterFactory<String, Object
     @Override
     @SuppressWarnings("unchecked")
     public <T> Converter<String, T> getConverter(Class<T> targetType) {
+        Converter<String, ?> converter = converters.get(targetType);
+        if (converter == null) {
+            converter = converters.computeIfAbsent(targetType, this::create);
+        }
+        return (Converter<String, T>) converter;
+    }
+
+    private Converter<String, ?> create(Class<?> targetType) {
+        ObjectReader reader = cache.reader(targetType);
         return source -> {
             try {
                 if (targetType == byte[].class) {
-                    return (T) source.getBytes(StandardCharsets.UTF_8);
+                    return source.getBytes(StandardCharsets.UTF_8);
                 } else if (targetType == String.class) {
-                    return (T) source;
+                    return source;
                 }
-                return objectMapper.readValue(source, targetType);
+                return reader.readValue(source);
             } catch (IOException e) {
                 log.warn("Payload deserialize error: {}", e.getMessage(), e);
             }
@@ -11,10 +11,10 @@ import org.springframework.core.convert.converter.Converter;
 public class JacksonStringSerialize implements Converter<Object, String> {
     private final static Logger log = LoggerFactory.getLogger(JacksonStringSerialize.class);
 
-    private final ObjectMapper objectMapper;
+    private final JacksonCache cache;
 
     public JacksonStringSerialize(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+        this.cache = new JacksonCache(objectMapper);
     }
 
     /**
@@ -29,7 +29,7 @@ public class JacksonStringSerialize implements Converter<Object, String> {
             if (source instanceof String) {
                 return (String) source;
             }
-            return objectMapper.writeValueAsString(source);
+            return cache.writer(source.getClass()).writeValueAsString(source);
         } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
             log.warn("Payload serialize error: {}", e.getMessage(), e);
         }
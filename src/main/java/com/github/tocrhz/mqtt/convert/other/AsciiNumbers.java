@@ -0,0 +1,195 @@
+package com.github.tocrhz.mqtt.convert.other;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 直接从 byte[] 解析数字和布尔值, 用于默认的 ByteArrayTo*Converter.
+ * <p>
+ * 去掉首尾空白后, 只包含 ASCII 符号和数字的常见内容(如 {@code 123}, {@code -4.56})直接解析, 不创建字符串.
+ * 其他内容(指数, 非 ASCII 字符, 溢出, 过长的小数等)转为字符串后使用 JDK 的方法解析, 结果和异常与之前一致.
+ *
+ * @author tocrhz
+ */
+public final class AsciiNumbers {
+    // 不超过 2^53 的整数和不超过 10^22 的 10 的幂都能精确表示为 double, 相除的结果是正确舍入的
+    private final static int DOUBLE_MAX_DIGITS = 15;
+    private final static double[] DOUBLE_POWERS = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // float 同理: 不超过 2^24 的整数和不超过 10^10 的 10 的幂
+    private final static int FLOAT_MAX_DIGITS = 7;
+    private final static float[] FLOAT_POWERS = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+    // 18 位十进制数不会超出 long 的范围
+    private final static int LONG_MAX_DIGITS = 18;
+    private final static long DIGITS_MASK = (1L << 56) - 1;
+
+    private AsciiNumbers() {
+    }
+
+    public static boolean parseBoolean(byte[] source) {
+        int start = start(source);
+        int end = end(source, start);
+        if (end - start != 4) {
+            return false;
+        }
+        return (source[start] | 0x20) == 't'
+                && (source[start + 1] | 0x20) == 'r'
+                && (source[start + 2] | 0x20) == 'u'
+                && (source[start + 3] | 0x20) == 'e';
+    }
+
+    public static byte parseByte(byte[] source) {
+        long value = parseInteger(source);
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            return Byte.parseByte(trimmed(source));
+        }
+        return (byte) value;
+    }
+
+    public static short parseShort(byte[] source) {
+        long value = parseInteger(source);
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            return Short.parseShort(trimmed(source));
+        }
+        return (short) value;
+    }
+
+    public static int parseInt(byte[] source) {
+        long value = parseInteger(source);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return Integer.parseInt(trimmed(source));
+        }
+        return (int) value;
+    }
+
+    public static long parseLong(byte[] source) {
+        long value = parseInteger(source);
+        if (value == Long.MIN_VALUE) {
+            return Long.parseLong(trimmed(source));
+        }
+        return value;
+    }
+
+    public static double parseDouble(byte[] source) {
+        int start = start(source);
+        int end = end(source, start);
+        boolean negative = start < end && source[start] == '-';
+        long mantissa = decimal(source, negative || start < end && source[start] == '+' ? start + 1 : start, end, DOUBLE_MAX_DIGITS);
+        if (mantissa < 0) {
+            return Double.parseDouble(trimmed(source));
+        }
+        int scale = (int) (mantissa >>> 56);
+        double value = (double) (mantissa & DIGITS_MASK);
+        if (scale > 0) {
+            value = value / DOUBLE_POWERS[scale];
+        }
+        return negative ? -value : value;
+    }
+
+    public static float parseFloat(byte[] source) {
+        int start = start(source);
+        int end = end(source, start);
+        boolean negative = start < end && source[start] == '-';
+        long mantissa = decimal(source, negative || start < end && source[start] == '+' ? start + 1 : start, end, FLOAT_MAX_DIGITS);
+        if (mantissa < 0 || (mantissa >>> 56) >= FLOAT_POWERS.length) {
+            return Float.parseFloat(trimmed(source));
+        }
+        int scale = (int) (mantissa >>> 56);
+        float value = (float) (mantissa & DIGITS_MASK);
+        if (scale > 0) {
+            value = value / FLOAT_POWERS[scale];
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * 解析整数, 无法直接解析时返回 Long.MIN_VALUE, 由调用方转为字符串处理
+     */
+    private static long parseInteger(byte[] source) {
+        int start = start(source);
+        int end = end(source, start);
+        if (start < end && (source[start] == '-' || source[start] == '+')) {
+            boolean negative = source[start] == '-';
+            long value = digits(source, start + 1, end);
+            return value < 0 ? Long.MIN_VALUE : negative ? -value : value;
+        }
+        long value = digits(source, start, end);
+        return value < 0 ? Long.MIN_VALUE : value;
+    }
+
+    /**
+     * 解析无符号的整数, 不是 1-18 位数字时返回 -1
+     */
+    private static long digits(byte[] source, int start, int end) {
+        if (start >= end || end - start > LONG_MAX_DIGITS) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = source[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * 解析无符号的小数, 返回值高 8 位为小数位数, 低 56 位为去掉小数点后的整数.
+     * 有效数字超过 maxDigits, 小数位数超过 22 或格式不是 {@code 123}, {@code 1.23}, {@code .5}, {@code 5.} 时返回 -1
+     */
+    private static long decimal(byte[] source, int start, int end, int maxDigits) {
+        long value = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        for (int i = start; i < end; i++) {
+            int digit = source[i] - '0';
+            if (digit >= 0 && digit <= 9) {
+                if (value != 0 || digit != 0) {
+                    digits++;
+                }
+                value = value * 10 + digit;
+                if (point) {
+                    scale++;
+                }
+                if (digits > maxDigits || scale >= DOUBLE_POWERS.length) {
+                    return -1;
+                }
+            } else if (source[i] == '.' && !point) {
+                point = true;
+            } else {
+                return -1;
+            }
+        }
+        if (end - start == (point ? 1 : 0)) {
+            // 空的或只有小数点
+            return -1;
+        }
+        return ((long) scale << 56) | value;
+    }
+
+    private static int start(byte[] source) {
+        int start = 0;
+        while (start < source.length && (source[start] & 0xff) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int end(byte[] source, int start) {
+        int end = source.length;
+        while (end > start && (source[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static String trimmed(byte[] source) {
+        return new String(source, StandardCharsets.UTF_8).trim();
+    }
+}
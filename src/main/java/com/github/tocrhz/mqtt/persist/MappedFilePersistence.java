@@ -0,0 +1,551 @@
+package com.github.tocrhz.mqtt.persist;
+
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.eclipse.paho.client.mqttv3.internal.MqttPersistentData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * 把 QoS 1/2 的发送状态追加到内存映射的日志文件中.
+ * <p>
+ * paho 的 MqttDefaultFilePersistence 每条消息创建一个文件并 fsync, 删除时再删除文件, 消息多时很慢.
+ * 这里把消息追加到固定大小的文件(segment)中, 写入只是内存复制, 由操作系统写回磁盘; 进程退出时已写入的内容不会丢失,
+ * 开启 sync 时每次写入后调用 force, 断电也不会丢失.
+ * <p>
+ * 每条记录为: 4 字节长度, 4 字节 CRC32, 1 字节状态, 2 字节 key 长度, 4 字节 header 长度, key, header, payload.
+ * 删除或覆盖时只把原来记录的状态改为已删除, 没有有效记录的文件直接删除.
+ * 写满一个文件后, 有效内容不到 1/4 的旧文件把有效记录复制到新文件后删除(压缩), 所以磁盘占用不会一直增长.
+ * 打开时按顺序扫描所有文件重建索引, 同一个 key 以最后一条为准, CRC 不一致的部分(写了一半)被丢弃.
+ * <p>
+ * 打开时对目录中的 .lck 文件加排它锁, 同一个 clientId 和 serverURI 同时只能有一个实例使用, 其他实例(包括其他进程)打开时失败.
+ * <p>
+ * 所有方法都是 synchronized 的, 读取时复制内容.
+ *
+ * @author tocrhz
+ */
+public class MappedFilePersistence implements MqttClientPersistence {
+    private final static Logger log = LoggerFactory.getLogger(MappedFilePersistence.class);
+
+    private final static String SUFFIX = ".journal";
+    private final static String LOCK = ".lck";
+    // 当前进程中已加锁的目录; 文件锁属于进程, 同一进程中再次打开并关闭锁文件会释放已有的锁, 所以先在这里判断
+    private final static Set<String> LOCKED = ConcurrentHashMap.newKeySet();
+    // 长度 + CRC32 + 状态 + key 长度 + header 长度
+    private final static int HEADER = 15;
+    private final static byte LIVE = 1;
+    private final static byte REMOVED = 2;
+    private final static Method INVOKE_CLEANER;
+    private final static Object UNSAFE;
+
+    static {
+        Method method = null;
+        Object unsafe = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            method = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8 没有 invokeCleaner, 由 GC 释放映射
+        }
+        INVOKE_CLEANER = method;
+        UNSAFE = unsafe;
+    }
+
+    private final String directory;
+    private final int segmentBytes;
+    private final boolean sync;
+
+    private File clientDir;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private String lockedPath;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final HashMap<String, Location> index = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private Segment active;
+    private long nextId;
+    private boolean compacting;
+
+    /**
+     * 创建持久化
+     *
+     * @param directory    文件目录, 每个客户端一个子目录
+     * @param segmentBytes 单个文件的大小(字节), 超过的消息单独一个文件
+     * @param sync         每次写入后是否 force 到磁盘
+     */
+    public MappedFilePersistence(String directory, int segmentBytes, boolean sync) {
+        this.directory = directory;
+        this.segmentBytes = Math.max(4096, segmentBytes);
+        this.sync = sync;
+    }
+
+    @Override
+    public synchronized void open(String clientId, String serverURI) throws MqttPersistenceException {
+        if (clientDir != null) {
+            return;
+        }
+        File dir = new File(directory, (clientId + "-" + serverURI).replaceAll("[^A-Za-z0-9._-]", "_"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new MqttPersistenceException(new IOException("cannot create directory " + dir));
+        }
+        lock(dir);
+        clientDir = dir;
+        try {
+            recover();
+        } catch (IOException e) {
+            release();
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws MqttPersistenceException {
+        if (clientDir == null) {
+            return;
+        }
+        try {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+            }
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, MqttPersistable persistable) throws MqttPersistenceException {
+        checkOpen();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int headerLength = persistable.getHeaderLength();
+        int payloadLength = persistable.getPayloadBytes() == null ? 0 : persistable.getPayloadLength();
+        int length = HEADER + keyBytes.length + headerLength + payloadLength;
+        try {
+            Segment segment = reserve(length);
+            ByteBuffer buffer = segment.buffer;
+            int offset = segment.position;
+            buffer.position(offset + 8);
+            buffer.put(LIVE).putShort((short) keyBytes.length).putInt(headerLength).put(keyBytes)
+                    .put(persistable.getHeaderBytes(), persistable.getHeaderOffset(), headerLength);
+            if (payloadLength > 0) {
+                buffer.put(persistable.getPayloadBytes(), persistable.getPayloadOffset(), payloadLength);
+            }
+            buffer.putInt(offset + 4, checksum(buffer, offset, length));
+            // 长度最后写入, 扫描时长度为 0 表示结束
+            buffer.putInt(offset, length);
+            segment.position += length;
+            Location old = index.put(key, new Location(segment, offset, length));
+            segment.add(length);
+            if (old != null) {
+                remove(old);
+            }
+            if (sync) {
+                segment.buffer.force();
+            }
+        } catch (IOException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    @Override
+    public synchronized MqttPersistable get(String key) throws MqttPersistenceException {
+        checkOpen();
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        ByteBuffer buffer = location.segment.buffer.duplicate();
+        buffer.position(location.offset + 9);
+        int keyLength = buffer.getShort() & 0xffff;
+        byte[] header = new byte[buffer.getInt()];
+        byte[] payload = new byte[location.length - HEADER - keyLength - header.length];
+        buffer.position(buffer.position() + keyLength);
+        buffer.get(header).get(payload);
+        return new MqttPersistentData(key, header, 0, header.length, payload, 0, payload.length);
+    }
+
+    @Override
+    public synchronized void remove(String key) throws MqttPersistenceException {
+        checkOpen();
+        Location location = index.remove(key);
+        if (location != null) {
+            Segment segment = location.segment;
+            remove(location);
+            if (sync && segments.contains(segment)) {
+                segment.buffer.force();
+            }
+        }
+    }
+
+    @Override
+    public synchronized Enumeration<String> keys() throws MqttPersistenceException {
+        checkOpen();
+        return Collections.enumeration(new ArrayList<>(index.keySet()));
+    }
+
+    @Override
+    public synchronized void clear() throws MqttPersistenceException {
+        checkOpen();
+        index.clear();
+        while (!segments.isEmpty()) {
+            delete(segments.pollFirst());
+        }
+        active = null;
+    }
+
+    @Override
+    public synchronized boolean containsKey(String key) throws MqttPersistenceException {
+        checkOpen();
+        return index.containsKey(key);
+    }
+
+    /**
+     * 当前的文件数量
+     *
+     * @return int
+     */
+    public synchronized int segments() {
+        return segments.size();
+    }
+
+    /**
+     * 有效记录占用的字节数
+     *
+     * @return long
+     */
+    public synchronized long liveBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.liveBytes;
+        }
+        return bytes;
+    }
+
+    private void checkOpen() throws MqttPersistenceException {
+        if (clientDir == null) {
+            throw new MqttPersistenceException();
+        }
+    }
+
+    private int checksum(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length).position(offset + 9);
+        crc.reset();
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * 标记为已删除, 不是当前写入的文件没有有效记录时删除文件
+     */
+    private void remove(Location location) {
+        Segment segment = location.segment;
+        segment.buffer.put(location.offset + 8, REMOVED);
+        segment.remove(location.length);
+        if (segment != active && segment.live == 0 && segments.remove(segment)) {
+            delete(segment);
+        }
+    }
+
+    /**
+     * 当前文件放不下时创建新的文件, 并压缩旧的文件
+     */
+    private Segment reserve(int length) throws IOException {
+        if (active != null && active.position + length <= active.capacity) {
+            return active;
+        }
+        Segment previous = active;
+        if (previous != null && previous.live == 0 && segments.remove(previous)) {
+            delete(previous);
+        }
+        active = create(Math.max(segmentBytes, length));
+        if (!compacting) {
+            compact();
+            if (active.position + length > active.capacity) {
+                // 压缩的记录占满了新文件
+                active = create(Math.max(segmentBytes, length));
+            }
+        }
+        return active;
+    }
+
+    /**
+     * 把有效内容不到 1/4 的旧文件中的记录复制到当前文件
+     */
+    private void compact() throws IOException {
+        compacting = true;
+        try {
+            for (Segment segment : segments.toArray(new Segment[0])) {
+                if (segment == active || segment.liveBytes * 4 > segment.capacity) {
+                    continue;
+                }
+                Iterator<Map.Entry<String, Location>> iterator = index.entrySet().iterator();
+                ArrayList<Map.Entry<String, Location>> moving = new ArrayList<>(segment.live);
+                while (iterator.hasNext()) {
+                    Map.Entry<String, Location> entry = iterator.next();
+                    if (entry.getValue().segment == segment) {
+                        moving.add(entry);
+                    }
+                }
+                for (Map.Entry<String, Location> entry : moving) {
+                    Location from = entry.getValue();
+                    Segment target = reserve(from.length);
+                    ByteBuffer source = segment.buffer.duplicate();
+                    source.limit(from.offset + from.length).position(from.offset);
+                    ByteBuffer dest = target.buffer.duplicate();
+                    dest.position(target.position);
+                    dest.put(source);
+                    entry.setValue(new Location(target, target.position, from.length));
+                    target.position += from.length;
+                    target.add(from.length);
+                    segment.remove(from.length);
+                }
+                if (segments.remove(segment)) {
+                    delete(segment);
+                }
+            }
+        } finally {
+            compacting = false;
+        }
+    }
+
+    private Segment create(int capacity) throws IOException {
+        File file = new File(clientDir, String.format("%020d", nextId++) + SUFFIX);
+        Segment segment = new Segment(file, map(file, capacity, true));
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private static MappedByteBuffer map(File file, int capacity, boolean create) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            if (create) {
+                raf.setLength(0);
+                raf.setLength(capacity);
+            }
+            // 映射在关闭文件后仍然有效
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private void delete(Segment segment) {
+        unmap(segment.buffer);
+        if (!segment.file.delete()) {
+            log.warn("mqtt persistence {} delete failure.", segment.file);
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // 由 GC 释放
+            }
+        }
+    }
+
+    /**
+     * 对目录加排它锁, 已被其他实例使用时失败
+     */
+    private void lock(File dir) throws MqttPersistenceException {
+        String path;
+        try {
+            path = dir.getCanonicalPath();
+        } catch (IOException e) {
+            throw new MqttPersistenceException(e);
+        }
+        if (!LOCKED.add(path)) {
+            log.error("mqtt persistence {} is in use by another client.", dir);
+            throw new MqttPersistenceException(MqttPersistenceException.REASON_CODE_PERSISTENCE_IN_USE);
+        }
+        FileChannel channel = null;
+        FileLock fileLock = null;
+        try {
+            channel = FileChannel.open(new File(dir, LOCK).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            fileLock = channel.tryLock();
+        } catch (IOException | OverlappingFileLockException e) {
+            LOCKED.remove(path);
+            closeQuietly(channel);
+            throw new MqttPersistenceException(e);
+        }
+        if (fileLock == null) {
+            LOCKED.remove(path);
+            closeQuietly(channel);
+            log.error("mqtt persistence {} is in use by another process.", dir);
+            throw new MqttPersistenceException(MqttPersistenceException.REASON_CODE_PERSISTENCE_IN_USE);
+        }
+        lockChannel = channel;
+        lock = fileLock;
+        lockedPath = path;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void release() {
+        for (Segment segment : segments) {
+            unmap(segment.buffer);
+        }
+        segments.clear();
+        index.clear();
+        active = null;
+        clientDir = null;
+        if (lock != null) {
+            try {
+                lock.release();
+            } catch (IOException e) {
+                log.warn("mqtt persistence lock release failure: {}", e.getMessage());
+            }
+            lock = null;
+        }
+        closeQuietly(lockChannel);
+        lockChannel = null;
+        if (lockedPath != null) {
+            LOCKED.remove(lockedPath);
+            lockedPath = null;
+        }
+    }
+
+    /**
+     * 按编号顺序扫描文件重建索引
+     */
+    private void recover() throws IOException {
+        File[] files = clientDir.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            long id;
+            try {
+                id = Long.parseLong(file.getName().substring(0, file.getName().length() - SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            long size = file.length();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                if (!file.delete()) {
+                    log.warn("mqtt persistence {} delete failure.", file);
+                }
+                continue;
+            }
+            Segment segment = new Segment(file, map(file, (int) size, false));
+            segments.addLast(segment);
+            nextId = id + 1;
+            scan(segment);
+        }
+        for (Segment segment : segments.toArray(new Segment[0])) {
+            if (segment.live == 0) {
+                segments.remove(segment);
+                delete(segment);
+            }
+        }
+        // 继续写入最后一个文件
+        active = segments.peekLast();
+    }
+
+    private void scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset + HEADER <= segment.capacity) {
+            int length = buffer.getInt(offset);
+            int keyLength = buffer.getShort(offset + 9) & 0xffff;
+            int headerLength = buffer.getInt(offset + 11);
+            if (length < HEADER || length > segment.capacity - offset || headerLength < 0
+                    || HEADER + keyLength + headerLength > length
+                    || buffer.getInt(offset + 4) != checksum(buffer, offset, length)) {
+                break;
+            }
+            if (buffer.get(offset + 8) == LIVE) {
+                byte[] key = new byte[keyLength];
+                ByteBuffer slice = buffer.duplicate();
+                slice.position(offset + HEADER);
+                slice.get(key);
+                Location old = index.put(new String(key, StandardCharsets.UTF_8), new Location(segment, offset, length));
+                segment.add(length);
+                if (old != null) {
+                    remove(old);
+                }
+            }
+            offset += length;
+        }
+        if (offset + 4 <= segment.capacity && buffer.getInt(offset) != 0) {
+            // 清除写了一半的内容, 之后的写入从这里开始
+            log.warn("mqtt persistence {} truncated at {}.", segment.file.getName(), offset);
+            for (int i = offset; i < segment.capacity; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        segment.position = offset;
+    }
+
+    private static final class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int position;
+        private int live;
+        private long liveBytes;
+
+        private Segment(File file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+
+        private void add(int length) {
+            live++;
+            liveBytes += length;
+        }
+
+        private void remove(int length) {
+            live--;
+            liveBytes -= length;
+        }
+    }
+
+    private static final class Location {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        private Location(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.tocrhz.mqtt.persist;
+
+/**
+ * 客户端 QoS 1/2 发送状态的持久化方式.
+ *
+ * @author tocrhz
+ */
+public enum PersistenceType {
+    /**
+     * 保存在内存中, 重启后丢失.
+     */
+    MEMORY,
+    /**
+     * paho 的 MqttDefaultFilePersistence, 每条消息一个文件.
+     */
+    FILE,
+    /**
+     * MappedFilePersistence, 追加到内存映射的日志文件.
+     */
+    MAPPED
+}
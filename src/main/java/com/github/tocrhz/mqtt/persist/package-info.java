@@ -0,0 +1,4 @@
+/**
+ * 客户端 QoS 1/2 发送状态的持久化.
+ */
+package com.github.tocrhz.mqtt.persist;
@@ -0,0 +1,66 @@
+package com.github.tocrhz.mqtt.properties;
+
+import java.util.List;
+
+/**
+ * 发布消息时按主题选择编码的相关配置.
+ */
+public class CodecProperties {
+    /**
+     * 按主题选择编码, 按顺序使用第一个匹配的规则, 都不匹配时使用默认的转换.
+     */
+    private List<Rule> rules;
+
+    /**
+     * 按主题选择编码, 按顺序使用第一个匹配的规则, 都不匹配时使用默认的转换.
+     *
+     * @return List
+     */
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * 主题和编码
+     */
+    public static class Rule {
+        /**
+         * 主题, 可以使用通配符 + 和 #.
+         */
+        private String topic;
+        /**
+         * 编码名称, 如 json, cbor, smile, msgpack.
+         */
+        private String codec;
+
+        /**
+         * 主题, 可以使用通配符 + 和 #.
+         *
+         * @return String
+         */
+        public String getTopic() {
+            return topic;
+        }
+
+        /**
+         * 编码名称, 如 json, cbor, smile, msgpack.
+         *
+         * @return String
+         */
+        public String getCodec() {
+            return codec;
+        }
+
+        public void setTopic(String topic) {
+            this.topic = topic;
+        }
+
+        public void setCodec(String codec) {
+            this.codec = codec;
+        }
+    }
+}
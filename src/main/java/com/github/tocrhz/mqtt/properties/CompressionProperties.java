@@ -0,0 +1,119 @@
+package com.github.tocrhz.mqtt.properties;
+
+import com.github.tocrhz.mqtt.convert.compress.CompressionAlgorithm;
+
+import java.util.List;
+
+/**
+ * 发布消息时按主题压缩消息内容的相关配置.
+ */
+public class CompressionProperties {
+    /**
+     * 接收时是否识别并解压匹配规则的主题中压缩的消息, 默认 true.
+     */
+    private Boolean decompress;
+    /**
+     * 解压后的最大长度(字节), 超过的消息不压缩, 收到时也不解压, 默认 4M.
+     */
+    private Integer maxSize;
+    /**
+     * 按主题选择压缩算法, 按顺序使用第一个匹配的规则, 都不匹配时不压缩.
+     */
+    private List<Rule> rules;
+
+    /**
+     * 接收时是否识别并解压匹配规则的主题中压缩的消息, 默认 true.
+     *
+     * @return Boolean
+     */
+    public Boolean getDecompress() {
+        return decompress;
+    }
+
+    /**
+     * 解压后的最大长度(字节), 超过的消息不压缩, 收到时也不解压, 默认 4M.
+     *
+     * @return Integer
+     */
+    public Integer getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 按主题选择压缩算法, 按顺序使用第一个匹配的规则, 都不匹配时不压缩.
+     *
+     * @return List
+     */
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setDecompress(Boolean decompress) {
+        this.decompress = decompress;
+    }
+
+    public void setMaxSize(Integer maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * 主题和压缩算法
+     */
+    public static class Rule {
+        /**
+         * 主题, 可以使用通配符 + 和 #.
+         */
+        private String topic;
+        /**
+         * 压缩算法: DEFLATE, LZ4, ZSTD, 为空时发送不压缩, 只在接收时解压.
+         */
+        private CompressionAlgorithm algorithm;
+        /**
+         * 小于这个长度(字节)的消息不压缩, 默认 512.
+         */
+        private Integer minSize;
+
+        /**
+         * 主题, 可以使用通配符 + 和 #.
+         *
+         * @return String
+         */
+        public String getTopic() {
+            return topic;
+        }
+
+        /**
+         * 压缩算法: DEFLATE, LZ4, ZSTD, 为空时发送不压缩, 只在接收时解压.
+         *
+         * @return CompressionAlgorithm
+         */
+        public CompressionAlgorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        /**
+         * 小于这个长度(字节)的消息不压缩, 默认 512.
+         *
+         * @return Integer
+         */
+        public Integer getMinSize() {
+            return minSize;
+        }
+
+        public void setTopic(String topic) {
+            this.topic = topic;
+        }
+
+        public void setAlgorithm(CompressionAlgorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        public void setMinSize(Integer minSize) {
+            this.minSize = minSize;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.tocrhz.mqtt.properties;
+
+import java.util.List;
+
+/**
+ * 发布消息时按主题合并消息的相关配置.
+ */
+public class ConflationProperties {
+    /**
+     * 按主题合并发布的消息, 按顺序使用第一个匹配的规则, 都不匹配时直接发布.
+     */
+    private List<Rule> rules;
+
+    /**
+     * 按主题合并发布的消息, 按顺序使用第一个匹配的规则, 都不匹配时直接发布.
+     *
+     * @return List
+     */
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * 主题和合并方式
+     */
+    public static class Rule {
+        /**
+         * 主题, 可以使用通配符 + 和 #.
+         */
+        private String topic;
+        /**
+         * 同一主题两次发布的最小间隔(毫秒), 间隔内和上一条还没有发送完成时只保留最新的消息, 默认 0.
+         */
+        private Integer interval;
+        /**
+         * 是否忽略与上一条发布的内容, qos 和 retained 完全相同的消息, 默认 false.
+         */
+        private Boolean suppressDuplicates;
+
+        /**
+         * 主题, 可以使用通配符 + 和 #.
+         *
+         * @return String
+         */
+        public String getTopic() {
+            return topic;
+        }
+
+        /**
+         * 同一主题两次发布的最小间隔(毫秒), 间隔内和上一条还没有发送完成时只保留最新的消息, 默认 0.
+         *
+         * @return Integer
+         */
+        public Integer getInterval() {
+            return interval;
+        }
+
+        /**
+         * 是否忽略与上一条发布的内容, qos 和 retained 完全相同的消息, 默认 false.
+         *
+         * @return Boolean
+         */
+        public Boolean getSuppressDuplicates() {
+            return suppressDuplicates;
+        }
+
+        public void setTopic(String topic) {
+            this.topic = topic;
+        }
+
+        public void setInterval(Integer interval) {
+            this.interval = interval;
+        }
+
+        public void setSuppressDuplicates(Boolean suppressDuplicates) {
+            this.suppressDuplicates = suppressDuplicates;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.tocrhz.mqtt.properties;
+
+import com.github.tocrhz.mqtt.subscriber.DedupMode;
+
+/**
+ * 重复消息过滤相关配置.
+ */
+public class DedupProperties {
+    /**
+     * 是否过滤重复的消息, 在消息转换和分发之前判断.
+     */
+    private Boolean enabled;
+    /**
+     * 判断重复的方式: MESSAGE_ID(主题+消息ID+消息内容, 只过滤重发的消息), PAYLOAD(主题+消息内容).
+     */
+    private DedupMode mode;
+    /**
+     * 最多记录的消息数量, 每条占用 16 字节.
+     */
+    private Integer maxEntries;
+    /**
+     * 记录的有效期(秒).
+     */
+    private Integer ttl;
+
+    /**
+     * 是否过滤重复的消息, 在消息转换和分发之前判断.
+     *
+     * @return Boolean
+     */
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 判断重复的方式: MESSAGE_ID(主题+消息ID+消息内容, 只过滤重发的消息), PAYLOAD(主题+消息内容).
+     *
+     * @return DedupMode
+     */
+    public DedupMode getMode() {
+        return mode;
+    }
+
+    /**
+     * 最多记录的消息数量, 每条占用 16 字节.
+     *
+     * @return Integer
+     */
+    public Integer getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * 记录的有效期(秒).
+     *
+     * @return Integer
+     */
+    public Integer getTtl() {
+        return ttl;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setMode(DedupMode mode) {
+        this.mode = mode;
+    }
+
+    public void setMaxEntries(Integer maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public void setTtl(Integer ttl) {
+        this.ttl = ttl;
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.tocrhz.mqtt.properties;
+
+import com.github.tocrhz.mqtt.subscriber.DispatchPolicy;
+
+/**
+ * 消息处理线程相关配置.
+ */
+public class DispatchProperties {
+    /**
+     * 处理消息的线程数, 0 表示在接收线程中直接处理.
+     */
+    private Integer threads;
+    /**
+     * 等待处理的消息队列长度.
+     */
+    private Integer queueCapacity;
+    /**
+     * 队列已满时的处理方式.
+     */
+    private DispatchPolicy rejectedPolicy;
+    /**
+     * 是否按主题有序处理, 开启后每个线程一个队列, 同一主题(或 {@code @MqttSubscribe#orderingKey} 指定的参数)的消息按顺序处理.
+     */
+    private Boolean ordered;
+    /**
+     * 使用虚拟线程处理消息, 需要 Java 21 及以上, 低版本时使用普通线程. 开启后线程数表示同时处理的消息数量上限, 可以设置得很大.
+     */
+    private Boolean virtualThreads;
+    /**
+     * 手动确认消息, 开启后 QoS 1/2 的消息在处理方法执行完(包括异步处理和批量处理)后才确认, 不支持参数为 Flux 的流式处理.
+     */
+    private Boolean manualAcks;
+    /**
+     * 手动确认消息时, 最多允许多少条消息未确认, 达到上限时暂停接收消息, 0 表示不限制.
+     */
+    private Integer maxUnacked;
+
+    /**
+     * 处理消息的线程数, 0 表示在接收线程中直接处理.
+     *
+     * @return Integer
+     */
+    public Integer getThreads() {
+        return threads;
+    }
+
+    /**
+     * 等待处理的消息队列长度.
+     *
+     * @return Integer
+     */
+    public Integer getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * 队列已满时的处理方式.
+     *
+     * @return DispatchPolicy
+     */
+    public DispatchPolicy getRejectedPolicy() {
+        return rejectedPolicy;
+    }
+
+    /**
+     * 是否按主题有序处理, 开启后每个线程一个队列, 同一主题(或 {@code @MqttSubscribe#orderingKey} 指定的参数)的消息按顺序处理.
+     *
+     * @return Boolean
+     */
+    public Boolean getOrdered() {
+        return ordered;
+    }
+
+    /**
+     * 使用虚拟线程处理消息, 需要 Java 21 及以上, 低版本时使用普通线程. 开启后线程数表示同时处理的消息数量上限, 可以设置得很大.
+     *
+     * @return Boolean
+     */
+    public Boolean getVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * 手动确认消息, 开启后 QoS 1/2 的消息在处理方法执行完(包括异步处理和批量处理)后才确认, 不支持参数为 Flux 的流式处理.
+     *
+     * @return Boolean
+     */
+    public Boolean getManualAcks() {
+        return manualAcks;
+    }
+
+    /**
+     * 手动确认消息时, 最多允许多少条消息未确认, 达到上限时暂停接收消息, 0 表示不限制.
+     *
+     * @return Integer
+     */
+    public Integer getMaxUnacked() {
+        return maxUnacked;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    public void setQueueCapacity(Integer queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public void setRejectedPolicy(DispatchPolicy rejectedPolicy) {
+        this.rejectedPolicy = rejectedPolicy;
+    }
+
+    public void setOrdered(Boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    public void setVirtualThreads(Boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public void setManualAcks(Boolean manualAcks) {
+        this.manualAcks = manualAcks;
+    }
+
+    public void setMaxUnacked(Integer maxUnacked) {
+        this.maxUnacked = maxUnacked;
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.tocrhz.mqtt.properties;
+
+/**
+ * 发布消息的流量控制相关配置.
+ */
+public class FlowProperties {
+    /**
+     * 是否开启流量控制, 开启后发送中的消息达到上限或没有连接时排队等待, 而不是发送失败, 默认 false.
+     */
+    private Boolean enabled;
+    /**
+     * 等待发送的消息数量上限, 超过后新的消息发送失败, 默认 10000.
+     */
+    private Integer queueCapacity;
+    /**
+     * 是否根据确认耗时调整同时发送的消息数量(不超过 max-inflight), 默认 false.
+     */
+    private Boolean adaptive;
+    /**
+     * 调整同时发送的数量时期望的确认耗时(毫秒), 超过时减少, 低于时增加, 默认 200.
+     */
+    private Integer targetLatency;
+    /**
+     * 每秒最多发送的消息数量, 0 为不限制, 默认 0.
+     */
+    private Integer messagesPerSecond;
+    /**
+     * 每秒最多发送的字节数(压缩后的消息内容), 0 为不限制, 默认 0.
+     */
+    private Integer bytesPerSecond;
+
+    /**
+     * 是否开启流量控制, 开启后发送中的消息达到上限或没有连接时排队等待, 而不是发送失败, 默认 false.
+     *
+     * @return Boolean
+     */
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 等待发送的消息数量上限, 超过后新的消息发送失败, 默认 10000.
+     *
+     * @return Integer
+     */
+    public Integer getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * 是否根据确认耗时调整同时发送的消息数量(不超过 max-inflight), 默认 false.
+     *
+     * @return Boolean
+     */
+    public Boolean getAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * 调整同时发送的数量时期望的确认耗时(毫秒), 超过时减少, 低于时增加, 默认 200.
+     *
+     * @return Integer
+     */
+    public Integer getTargetLatency() {
+        return targetLatency;
+    }
+
+    /**
+     * 每秒最多发送的消息数量, 0 为不限制, 默认 0.
+     *
+     * @return Integer
+     */
+    public Integer getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    /**
+     * 每秒最多发送的字节数(压缩后的消息内容), 0 为不限制, 默认 0.
+     *
+     * @return Integer
+     */
+    public Integer getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setQueueCapacity(Integer queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public void setAdaptive(Boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    public void setTargetLatency(Integer targetLatency) {
+        this.targetLatency = targetLatency;
+    }
+
+    public void setMessagesPerSecond(Integer messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    public void setBytesPerSecond(Integer bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+}
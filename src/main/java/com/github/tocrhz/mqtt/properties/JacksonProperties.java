@@ -0,0 +1,26 @@
+package com.github.tocrhz.mqtt.properties;
+
+import com.github.tocrhz.mqtt.convert.jackson.JacksonAccelerator;
+
+/**
+ * 默认 jackson 转换相关配置, 所有客户端共用.
+ */
+public class JacksonProperties {
+    /**
+     * 使用生成的代码读写对象属性: NONE, BLACKBIRD(JDK 11+), AFTERBURNER(JDK 8), 需要引入对应的 jackson 模块.
+     */
+    private JacksonAccelerator accelerator = JacksonAccelerator.NONE;
+
+    /**
+     * 使用生成的代码读写对象属性: NONE, BLACKBIRD(JDK 11+), AFTERBURNER(JDK 8), 需要引入对应的 jackson 模块.
+     *
+     * @return JacksonAccelerator
+     */
+    public JacksonAccelerator getAccelerator() {
+        return accelerator;
+    }
+
+    public void setAccelerator(JacksonAccelerator accelerator) {
+        this.accelerator = accelerator;
+    }
+}
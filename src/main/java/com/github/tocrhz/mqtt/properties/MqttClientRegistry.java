@@ -96,12 +96,21 @@ public class MqttClientRegistry {
         mqttProperties.setCleanSession(properties.getCleanSession());
         mqttProperties.setConnectionTimeout(properties.getConnectionTimeout());
         mqttProperties.setExecutorServiceTimeout(properties.getExecutorServiceTimeout());
+        mqttProperties.setMaxInflight(properties.getMaxInflight());
         mqttProperties.setKeepAliveInterval(properties.getKeepAliveInterval());
         mqttProperties.setMaxReconnectDelay(properties.getMaxReconnectDelay());
         mqttProperties.setPassword(properties.getPassword());
         mqttProperties.setUri(properties.getUri());
         mqttProperties.setEnableSharedSubscription(properties.getEnableSharedSubscription());
         mqttProperties.setDefaultPublishQos(properties.getDefaultPublishQos());
+        mqttProperties.setDispatch(properties.getDispatch());
+        mqttProperties.setDedup(properties.getDedup());
+        mqttProperties.setCodec(properties.getCodec());
+        mqttProperties.setCompression(properties.getCompression());
+        mqttProperties.setConflation(properties.getConflation());
+        mqttProperties.setFlow(properties.getFlow());
+        mqttProperties.setOffline(properties.getOffline());
+        mqttProperties.setPersistence(properties.getPersistence());
         return this;
     }
 
@@ -1,13 +1,18 @@
 package com.github.tocrhz.mqtt.properties;
 
+import com.github.tocrhz.mqtt.persist.MappedFilePersistence;
+import com.github.tocrhz.mqtt.persist.PersistenceType;
 import com.github.tocrhz.mqtt.subscriber.MqttSubscriber;
 import com.github.tocrhz.mqtt.subscriber.TopicPair;
 import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Set;
@@ -68,9 +73,59 @@ public abstract class MqttConfigAdapter {
      * @param serverURIs serverURIs
      * @return IMqttAsyncClient
      * @throws MqttException 创建客户端异常
+     * @deprecated 使用 {@link #postCreate(String, String[], MqttConnectionProperties)}, 只重写了这个方法时仍然会被调用
      */
+    @Deprecated
     public IMqttAsyncClient postCreate(String clientId, String[] serverURIs) throws MqttException {
-        return new MqttAsyncClient(serverURIs[0], clientId, new MemoryPersistence());
+        MqttConnectionProperties properties = mqttProperties == null ? null : mqttProperties.getConnection(clientId);
+        return new MqttAsyncClient(serverURIs[0], clientId, createPersistence(clientId, properties));
+    }
+
+    /**
+     * 创建客户端.
+     *
+     * @param clientId   客户端ID
+     * @param serverURIs serverURIs
+     * @param properties 客户端的配置(已合并默认值), 没有时为 null
+     * @return IMqttAsyncClient
+     * @throws MqttException 创建客户端异常
+     */
+    public IMqttAsyncClient postCreate(String clientId, String[] serverURIs, MqttConnectionProperties properties) throws MqttException {
+        if (overridesLegacyPostCreate()) {
+            return postCreate(clientId, serverURIs);
+        }
+        return new MqttAsyncClient(serverURIs[0], clientId, createPersistence(clientId, properties));
+    }
+
+    @SuppressWarnings("deprecation")
+    private boolean overridesLegacyPostCreate() {
+        try {
+            return getClass().getMethod("postCreate", String.class, String[].class).getDeclaringClass() != MqttConfigAdapter.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建客户端的持久化, 按 mqtt.persistence.type 选择, 默认为内存.
+     *
+     * @param clientId   客户端ID
+     * @param properties 客户端的配置, 为 null 时使用全局的配置
+     * @return MqttClientPersistence
+     */
+    public MqttClientPersistence createPersistence(String clientId, MqttConnectionProperties properties) {
+        MqttConnectionProperties connection = properties != null ? properties : mqttProperties;
+        PersistenceProperties persistence = connection == null ? null : connection.getPersistence();
+        if (persistence == null || persistence.getType() == null || persistence.getType() == PersistenceType.MEMORY) {
+            return new MemoryPersistence();
+        }
+        String directory = persistence.getDirectory() != null ? persistence.getDirectory()
+                : new File(System.getProperty("java.io.tmpdir"), "mqtt-persistence").getPath();
+        if (persistence.getType() == PersistenceType.FILE) {
+            return new MqttDefaultFilePersistence(directory);
+        }
+        int segmentBytes = persistence.getSegmentBytes() == null ? 4 * 1024 * 1024 : persistence.getSegmentBytes();
+        return new MappedFilePersistence(directory, segmentBytes, Boolean.TRUE.equals(persistence.getSync()));
     }
 
     /**
@@ -71,6 +71,13 @@ public class MqttConnectionProperties {
      */
     private Integer executorServiceTimeout;
 
+    /**
+     * 同时发送中(未收到确认)的消息数量上限, 默认 10.
+     *
+     * @see MqttConnectOptions#setMaxInflight(int)
+     */
+    private Integer maxInflight;
+
     /**
      * 是否清除会话.
      *
@@ -90,6 +97,46 @@ public class MqttConnectionProperties {
      */
     private WillProperties will;
 
+    /**
+     * 消息处理线程相关配置.
+     */
+    private DispatchProperties dispatch;
+
+    /**
+     * 重复消息过滤相关配置.
+     */
+    private DedupProperties dedup;
+
+    /**
+     * 发布消息时按主题选择编码的相关配置
+     */
+    private CodecProperties codec;
+
+    /**
+     * 发布消息时按主题压缩消息内容的相关配置.
+     */
+    private CompressionProperties compression;
+
+    /**
+     * 发布消息时按主题合并消息的相关配置.
+     */
+    private ConflationProperties conflation;
+
+    /**
+     * 发布消息的流量控制相关配置.
+     */
+    private FlowProperties flow;
+
+    /**
+     * 没有连接时把发布的消息缓存到本地文件的相关配置.
+     */
+    private OfflineProperties offline;
+
+    /**
+     * 客户端 QoS 1/2 发送状态的持久化相关配置.
+     */
+    private PersistenceProperties persistence;
+
     /**
      * 客户端ID
      *
@@ -133,6 +180,16 @@ public class MqttConnectionProperties {
         return executorServiceTimeout;
     }
 
+    /**
+     * 同时发送中(未收到确认)的消息数量上限, 默认 10.
+     *
+     * @return Integer
+     * @see MqttConnectOptions#setMaxInflight(int)
+     */
+    public Integer getMaxInflight() {
+        return maxInflight;
+    }
+
     /**
      * 连接超时时间(秒).
      *
@@ -182,6 +239,78 @@ public class MqttConnectionProperties {
         return will;
     }
 
+    /**
+     * 消息处理线程相关配置.
+     *
+     * @return DispatchProperties
+     */
+    public DispatchProperties getDispatch() {
+        return dispatch;
+    }
+
+    /**
+     * 重复消息过滤相关配置.
+     *
+     * @return DedupProperties
+     */
+    public DedupProperties getDedup() {
+        return dedup;
+    }
+
+    /**
+     * 发布消息时按主题选择编码的相关配置
+     *
+     * @return CodecProperties
+     */
+    public CodecProperties getCodec() {
+        return codec;
+    }
+
+    /**
+     * 发布消息时按主题压缩消息内容的相关配置.
+     *
+     * @return CompressionProperties
+     */
+    public CompressionProperties getCompression() {
+        return compression;
+    }
+
+    /**
+     * 发布消息时按主题合并消息的相关配置.
+     *
+     * @return ConflationProperties
+     */
+    public ConflationProperties getConflation() {
+        return conflation;
+    }
+
+    /**
+     * 发布消息的流量控制相关配置.
+     *
+     * @return FlowProperties
+     */
+    public FlowProperties getFlow() {
+        return flow;
+    }
+
+    /**
+     * 没有连接时把发布的消息缓存到本地文件的相关配置.
+     *
+     * @return OfflineProperties
+     */
+    public OfflineProperties getOffline() {
+        return offline;
+    }
+
+    /**
+     * 客户端 QoS 1/2 发送状态的持久化相关配置.
+     *
+     * @return PersistenceProperties
+     */
+    public PersistenceProperties getPersistence() {
+        return persistence;
+    }
+
     /**
      * 密码.
      *
@@ -228,6 +357,38 @@ public class MqttConnectionProperties {
         this.will = will;
     }
 
+    public void setDispatch(DispatchProperties dispatch) {
+        this.dispatch = dispatch;
+    }
+
+    public void setDedup(DedupProperties dedup) {
+        this.dedup = dedup;
+    }
+
+    public void setCodec(CodecProperties codec) {
+        this.codec = codec;
+    }
+
+    public void setCompression(CompressionProperties compression) {
+        this.compression = compression;
+    }
+
+    public void setConflation(ConflationProperties conflation) {
+        this.conflation = conflation;
+    }
+
+    public void setFlow(FlowProperties flow) {
+        this.flow = flow;
+    }
+
+    public void setOffline(OfflineProperties offline) {
+        this.offline = offline;
+    }
+
+    public void setPersistence(PersistenceProperties persistence) {
+        this.persistence = persistence;
+    }
+
     public void setAutomaticReconnect(Boolean automaticReconnect) {
         this.automaticReconnect = automaticReconnect;
     }
@@ -244,6 +405,10 @@ public class MqttConnectionProperties {
         this.executorServiceTimeout = executorServiceTimeout;
     }
 
+    public void setMaxInflight(Integer maxInflight) {
+        this.maxInflight = maxInflight;
+    }
+
     public void setKeepAliveInterval(Integer keepAliveInterval) {
         this.keepAliveInterval = keepAliveInterval;
     }
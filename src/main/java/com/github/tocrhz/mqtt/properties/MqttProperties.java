@@ -1,10 +1,15 @@
 package com.github.tocrhz.mqtt.properties;
 
+import com.github.tocrhz.mqtt.persist.PersistenceType;
+import com.github.tocrhz.mqtt.publisher.OfflineDropPolicy;
+import com.github.tocrhz.mqtt.subscriber.DedupMode;
+import com.github.tocrhz.mqtt.subscriber.DispatchPolicy;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.util.StringUtils;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.BiConsumer;
@@ -27,6 +32,11 @@ public class MqttProperties extends MqttConnectionProperties {
      */
     private Map<String, MqttConnectionProperties> clients = new LinkedHashMap<>();
 
+    /**
+     * 默认 jackson 转换相关配置, 所有客户端共用
+     */
+    private JacksonProperties jackson = new JacksonProperties();
+
     /**
      * 是否禁用
      *
@@ -53,6 +63,19 @@ public class MqttProperties extends MqttConnectionProperties {
         this.clients = clients;
     }
 
+    /**
+     * 默认 jackson 转换相关配置, 所有客户端共用
+     *
+     * @return JacksonProperties
+     */
+    public JacksonProperties getJackson() {
+        return jackson;
+    }
+
+    public void setJackson(JacksonProperties jackson) {
+        this.jackson = jackson;
+    }
+
     /**
      * 遍历所有的客户端配置
      *
@@ -125,6 +148,7 @@ public class MqttProperties extends MqttConnectionProperties {
         options.setCleanSession(properties.getCleanSession());
         options.setAutomaticReconnect(properties.getAutomaticReconnect());
         options.setExecutorServiceTimeout(properties.getExecutorServiceTimeout());
+        options.setMaxInflight(properties.getMaxInflight());
         options.setServerURIs(properties.getUri());
         if (StringUtils.hasText(properties.getUsername()) && StringUtils.hasText(properties.getPassword())) {
             options.setUserName(properties.getUsername());
@@ -148,6 +172,7 @@ public class MqttProperties extends MqttConnectionProperties {
         target.setKeepAliveInterval(mergeValue(getKeepAliveInterval(), target.getKeepAliveInterval(), 60));
         target.setConnectionTimeout(mergeValue(getConnectionTimeout(), target.getConnectionTimeout(), 30));
         target.setExecutorServiceTimeout(mergeValue(getExecutorServiceTimeout(), target.getExecutorServiceTimeout(), 10));
+        target.setMaxInflight(mergeValue(getMaxInflight(), target.getMaxInflight(), 10));
         target.setCleanSession(mergeValue(getCleanSession(), target.getCleanSession(), true));
         target.setAutomaticReconnect(mergeValue(getAutomaticReconnect(), target.getAutomaticReconnect(), true));
         target.setWill(mergeValue(getWill(), target.getWill(), null));
@@ -160,6 +185,62 @@ public class MqttProperties extends MqttConnectionProperties {
             targetWill.setQos(mergeValue(will.getQos(), targetWill.getQos(), 0));
             targetWill.setRetained(mergeValue(will.getRetained(), targetWill.getRetained(), false));
         }
+        target.setDispatch(mergeValue(getDispatch(), target.getDispatch(), new DispatchProperties()));
+        DispatchProperties dispatch = getDispatch() == null ? new DispatchProperties() : getDispatch();
+        DispatchProperties targetDispatch = target.getDispatch();
+        targetDispatch.setThreads(mergeValue(dispatch.getThreads(), targetDispatch.getThreads(), 0));
+        targetDispatch.setQueueCapacity(mergeValue(dispatch.getQueueCapacity(), targetDispatch.getQueueCapacity(), 1024));
+        targetDispatch.setRejectedPolicy(mergeValue(dispatch.getRejectedPolicy(), targetDispatch.getRejectedPolicy(), DispatchPolicy.BLOCK));
+        targetDispatch.setOrdered(mergeValue(dispatch.getOrdered(), targetDispatch.getOrdered(), false));
+        targetDispatch.setVirtualThreads(mergeValue(dispatch.getVirtualThreads(), targetDispatch.getVirtualThreads(), false));
+        targetDispatch.setManualAcks(mergeValue(dispatch.getManualAcks(), targetDispatch.getManualAcks(), false));
+        targetDispatch.setMaxUnacked(mergeValue(dispatch.getMaxUnacked(), targetDispatch.getMaxUnacked(), 1000));
+        target.setDedup(mergeValue(getDedup(), target.getDedup(), new DedupProperties()));
+        DedupProperties dedup = getDedup() == null ? new DedupProperties() : getDedup();
+        DedupProperties targetDedup = target.getDedup();
+        targetDedup.setEnabled(mergeValue(dedup.getEnabled(), targetDedup.getEnabled(), false));
+        targetDedup.setMode(mergeValue(dedup.getMode(), targetDedup.getMode(), DedupMode.MESSAGE_ID));
+        targetDedup.setMaxEntries(mergeValue(dedup.getMaxEntries(), targetDedup.getMaxEntries(), 65536));
+        targetDedup.setTtl(mergeValue(dedup.getTtl(), targetDedup.getTtl(), 60));
+        target.setCodec(mergeValue(getCodec(), target.getCodec(), new CodecProperties()));
+        CodecProperties codec = getCodec() == null ? new CodecProperties() : getCodec();
+        CodecProperties targetCodec = target.getCodec();
+        targetCodec.setRules(mergeValue(codec.getRules(), targetCodec.getRules(), new ArrayList<>()));
+        target.setCompression(mergeValue(getCompression(), target.getCompression(), new CompressionProperties()));
+        CompressionProperties compression = getCompression() == null ? new CompressionProperties() : getCompression();
+        CompressionProperties targetCompression = target.getCompression();
+        targetCompression.setDecompress(mergeValue(compression.getDecompress(), targetCompression.getDecompress(), true));
+        targetCompression.setMaxSize(mergeValue(compression.getMaxSize(), targetCompression.getMaxSize(), 4 * 1024 * 1024));
+        targetCompression.setRules(mergeValue(compression.getRules(), targetCompression.getRules(), new ArrayList<>()));
+        target.setConflation(mergeValue(getConflation(), target.getConflation(), new ConflationProperties()));
+        ConflationProperties conflation = getConflation() == null ? new ConflationProperties() : getConflation();
+        ConflationProperties targetConflation = target.getConflation();
+        targetConflation.setRules(mergeValue(conflation.getRules(), targetConflation.getRules(), new ArrayList<>()));
+        target.setFlow(mergeValue(getFlow(), target.getFlow(), new FlowProperties()));
+        FlowProperties flow = getFlow() == null ? new FlowProperties() : getFlow();
+        FlowProperties targetFlow = target.getFlow();
+        targetFlow.setEnabled(mergeValue(flow.getEnabled(), targetFlow.getEnabled(), false));
+        targetFlow.setQueueCapacity(mergeValue(flow.getQueueCapacity(), targetFlow.getQueueCapacity(), 10000));
+        targetFlow.setAdaptive(mergeValue(flow.getAdaptive(), targetFlow.getAdaptive(), false));
+        targetFlow.setTargetLatency(mergeValue(flow.getTargetLatency(), targetFlow.getTargetLatency(), 200));
+        targetFlow.setMessagesPerSecond(mergeValue(flow.getMessagesPerSecond(), targetFlow.getMessagesPerSecond(), 0));
+        targetFlow.setBytesPerSecond(mergeValue(flow.getBytesPerSecond(), targetFlow.getBytesPerSecond(), 0));
+        target.setOffline(mergeValue(getOffline(), target.getOffline(), new OfflineProperties()));
+        OfflineProperties offline = getOffline() == null ? new OfflineProperties() : getOffline();
+        OfflineProperties targetOffline = target.getOffline();
+        targetOffline.setEnabled(mergeValue(offline.getEnabled(), targetOffline.getEnabled(), false));
+        targetOffline.setDirectory(mergeValue(offline.getDirectory(), targetOffline.getDirectory(), null));
+        targetOffline.setMaxBytes(mergeValue(offline.getMaxBytes(), targetOffline.getMaxBytes(), 256L * 1024 * 1024));
+        targetOffline.setSegmentBytes(mergeValue(offline.getSegmentBytes(), targetOffline.getSegmentBytes(), 16 * 1024 * 1024));
+        targetOffline.setDropPolicy(mergeValue(offline.getDropPolicy(), targetOffline.getDropPolicy(), OfflineDropPolicy.OLDEST));
+        targetOffline.setDrainRate(mergeValue(offline.getDrainRate(), targetOffline.getDrainRate(), 1000));
+        target.setPersistence(mergeValue(getPersistence(), target.getPersistence(), new PersistenceProperties()));
+        PersistenceProperties persistence = getPersistence() == null ? new PersistenceProperties() : getPersistence();
+        PersistenceProperties targetPersistence = target.getPersistence();
+        targetPersistence.setType(mergeValue(persistence.getType(), targetPersistence.getType(), PersistenceType.MEMORY));
+        targetPersistence.setDirectory(mergeValue(persistence.getDirectory(), targetPersistence.getDirectory(), null));
+        targetPersistence.setSegmentBytes(mergeValue(persistence.getSegmentBytes(), targetPersistence.getSegmentBytes(), 4 * 1024 * 1024));
+        targetPersistence.setSync(mergeValue(persistence.getSync(), targetPersistence.getSync(), false));
     }
 
     private <T> T mergeValue(T parentValue, T targetValue, T defaultValue) {
@@ -168,6 +249,25 @@ public class MqttProperties extends MqttConnectionProperties {
         } else return (targetValue == null ? parentValue : targetValue);
     }
 
+    /**
+     * 客户端的配置
+     *
+     * @param clientId 客户端ID.
+     * @return 合并默认值后的配置, 不存在时返回 null
+     */
+    public MqttConnectionProperties getConnection(String clientId) {
+        MqttConnectionProperties properties = clients.get(clientId);
+        if (properties == null) {
+            if (clientId.equals(getClientId())) {
+                properties = this;
+            } else {
+                return null;
+            }
+        }
+        merge(properties);
+        return properties;
+    }
+
     public boolean isEnableSharedSubscription(String clientId) {
         if (clientId.equals(getClientId())) {
             return getEnableSharedSubscription();
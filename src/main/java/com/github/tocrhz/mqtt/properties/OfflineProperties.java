@@ -0,0 +1,111 @@
+package com.github.tocrhz.mqtt.properties;
+
+import com.github.tocrhz.mqtt.publisher.OfflineDropPolicy;
+
+/**
+ * 没有连接时把发布的消息缓存到本地文件的相关配置.
+ */
+public class OfflineProperties {
+    /**
+     * 是否开启离线缓存, 没有连接时发布的消息追加到本地文件, 连接后按顺序发送, 默认 false.
+     */
+    private Boolean enabled;
+    /**
+     * 缓存文件目录, 每个客户端一个子目录, 默认为 ${java.io.tmpdir}/mqtt-offline.
+     */
+    private String directory;
+    /**
+     * 缓存文件的总大小上限(字节), 默认 256M.
+     */
+    private Long maxBytes;
+    /**
+     * 单个缓存文件的大小(字节), 超过后写入新的文件, 默认 16M.
+     */
+    private Integer segmentBytes;
+    /**
+     * 缓存已满时: OLDEST(丢弃最早的消息), NEWEST(丢弃新的消息), 默认 OLDEST.
+     */
+    private OfflineDropPolicy dropPolicy;
+    /**
+     * 连接后每秒最多发送的缓存消息数量, 0 为不限制, 默认 1000.
+     */
+    private Integer drainRate;
+
+    /**
+     * 是否开启离线缓存, 没有连接时发布的消息追加到本地文件, 连接后按顺序发送, 默认 false.
+     *
+     * @return Boolean
+     */
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 缓存文件目录, 每个客户端一个子目录, 默认为 ${java.io.tmpdir}/mqtt-offline.
+     *
+     * @return String
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 缓存文件的总大小上限(字节), 默认 256M.
+     *
+     * @return Long
+     */
+    public Long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 单个缓存文件的大小(字节), 超过后写入新的文件, 默认 16M.
+     *
+     * @return Integer
+     */
+    public Integer getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * 缓存已满时: OLDEST(丢弃最早的消息), NEWEST(丢弃新的消息), 默认 OLDEST.
+     *
+     * @return OfflineDropPolicy
+     */
+    public OfflineDropPolicy getDropPolicy() {
+        return dropPolicy;
+    }
+
+    /**
+     * 连接后每秒最多发送的缓存消息数量, 0 为不限制, 默认 1000.
+     *
+     * @return Integer
+     */
+    public Integer getDrainRate() {
+        return drainRate;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public void setMaxBytes(Long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public void setSegmentBytes(Integer segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    public void setDropPolicy(OfflineDropPolicy dropPolicy) {
+        this.dropPolicy = dropPolicy;
+    }
+
+    public void setDrainRate(Integer drainRate) {
+        this.drainRate = drainRate;
+    }
+}
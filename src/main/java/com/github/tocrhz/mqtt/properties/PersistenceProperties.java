@@ -0,0 +1,77 @@
+package com.github.tocrhz.mqtt.properties;
+
+import com.github.tocrhz.mqtt.persist.PersistenceType;
+
+/**
+ * 客户端 QoS 1/2 发送状态的持久化相关配置.
+ */
+public class PersistenceProperties {
+    /**
+     * 持久化方式: MEMORY(内存, 重启后丢失), FILE(paho 的文件持久化, 每条消息一个文件), MAPPED(内存映射的日志文件), 默认 MEMORY.
+     */
+    private PersistenceType type;
+    /**
+     * FILE 和 MAPPED 的文件目录, 每个客户端一个子目录, 默认为 ${java.io.tmpdir}/mqtt-persistence.
+     */
+    private String directory;
+    /**
+     * MAPPED 单个日志文件的大小(字节), 默认 4M.
+     */
+    private Integer segmentBytes;
+    /**
+     * MAPPED 每次写入后是否刷新到磁盘, 关闭时进程退出不会丢失, 断电可能丢失, 默认 false.
+     */
+    private Boolean sync;
+
+    /**
+     * 持久化方式: MEMORY(内存, 重启后丢失), FILE(paho 的文件持久化, 每条消息一个文件), MAPPED(内存映射的日志文件), 默认 MEMORY.
+     *
+     * @return PersistenceType
+     */
+    public PersistenceType getType() {
+        return type;
+    }
+
+    /**
+     * FILE 和 MAPPED 的文件目录, 每个客户端一个子目录, 默认为 ${java.io.tmpdir}/mqtt-persistence.
+     *
+     * @return String
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * MAPPED 单个日志文件的大小(字节), 默认 4M.
+     *
+     * @return Integer
+     */
+    public Integer getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * MAPPED 每次写入后是否刷新到磁盘, 关闭时进程退出不会丢失, 断电可能丢失, 默认 false.
+     *
+     * @return Boolean
+     */
+    public Boolean getSync() {
+        return sync;
+    }
+
+    public void setType(PersistenceType type) {
+        this.type = type;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public void setSegmentBytes(Integer segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    public void setSync(Boolean sync) {
+        this.sync = sync;
+    }
+}
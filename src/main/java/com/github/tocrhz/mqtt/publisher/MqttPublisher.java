@@ -3,6 +3,10 @@ package com.github.tocrhz.mqtt.publisher;
 import com.github.tocrhz.mqtt.autoconfigure.MqttClientManager;
 import org.eclipse.paho.client.mqttv3.IMqttActionListener;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Used to publish message
  *
@@ -55,4 +59,24 @@ public class MqttPublisher {
     public void send(String topic, Object payload, int qos, boolean retained, IMqttActionListener callback) {
         client().send(topic, payload, qos, retained, callback);
     }
+
+    public CompletableFuture<PublishResult> sendAsync(String topic, Object payload) {
+        return client().sendAsync(topic, payload);
+    }
+
+    public CompletableFuture<PublishResult> sendAsync(String topic, Object payload, boolean retained) {
+        return client().sendAsync(topic, payload, retained);
+    }
+
+    public CompletableFuture<PublishResult> sendAsync(String topic, Object payload, int qos) {
+        return client().sendAsync(topic, payload, qos);
+    }
+
+    public CompletableFuture<PublishResult> sendAsync(String topic, Object payload, int qos, boolean retained) {
+        return client().sendAsync(topic, payload, qos, retained);
+    }
+
+    public CompletableFuture<List<PublishResult>> sendAll(Collection<PublishMessage> messages) {
+        return client().sendAll(messages);
+    }
 }
@@ -0,0 +1,743 @@
+package com.github.tocrhz.mqtt.publisher;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 没有连接时把发布的消息追加到本地文件, 连接后按顺序发送.
+ * <p>
+ * 消息按顺序编号, 追加到以第一条消息编号命名的文件中, 超过 segmentBytes 后写入新的文件, 发送完的文件直接删除.
+ * 每条消息为: 4 字节长度, 4 字节 CRC32, 1 字节 QoS 和 retained, 2 字节主题长度, 主题, 消息内容.
+ * 已发送的位置记录在 position 文件中, 重启后从这个位置继续发送, 最后一条写了一半的消息会被截掉.
+ * <p>
+ * 有缓存的消息没有发送完时, 新的消息也追加到文件中, 保证顺序. 连接后按 drainRate 分批交给客户端发送,
+ * 收到确认(QoS 0 为写出)后才算发送完成, 保存的位置只移动到连续完成的最后一条, 所以异常退出时会重发还没有确认的消息.
+ * 因为断开连接发送失败的消息在重新连接后从这一条开始重新发送, 中间已经确认的消息会跳过.
+ * 发送完成的回调只保存在内存中, 重启后不会调用. 回调在释放锁之后调用, 回调中可以再次发布消息.
+ * 关闭时还没有发送的消息保留在文件中, 它们的回调以失败结束, 之后不再写入和发送.
+ *
+ * @author tocrhz
+ */
+public final class OfflineBuffer {
+    private final static Logger log = LoggerFactory.getLogger(OfflineBuffer.class);
+
+    private final static String SUFFIX = ".seg";
+    private final static String POSITION = "position";
+    // 长度 + CRC32 + QoS/retained + 主题长度
+    private final static int HEADER = 11;
+    private final static long TICK_MILLIS = 100;
+
+    private final String id;
+    private final IMqttAsyncClient client;
+    private final ScheduledExecutorService scheduler;
+    private final File directory;
+    private final long maxBytes;
+    private final long segmentBytes;
+    private final OfflineDropPolicy dropPolicy;
+    private final int batch;
+
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final HashMap<Long, IMqttActionListener> callbacks = new HashMap<>();
+    private final ArrayList<Runnable> failures = new ArrayList<>();
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER);
+    private final CRC32 crc = new CRC32();
+    private final FileChannel position;
+    private FileChannel writer;
+    private FileChannel reader;
+    private Segment reading;
+    // 保存的位置, 之前的消息都已经发送完成
+    private long readSeq;
+    // 下一条交给客户端发送的消息, 以及它在 reading 文件中的位置
+    private long sendSeq;
+    private long sendOffset;
+    // readSeq 之后已经完成的消息
+    private final TreeSet<Long> done = new TreeSet<>();
+    private long writeSeq;
+    private long totalBytes;
+    private boolean draining;
+    private boolean closed;
+    private ScheduledFuture<?> task;
+    private boolean warned;
+    private long dropped;
+    private long drained;
+
+    OfflineBuffer(String id, IMqttAsyncClient client, ScheduledExecutorService scheduler, String directory
+            , long maxBytes, int segmentBytes, OfflineDropPolicy dropPolicy, int drainRate) {
+        this.id = id;
+        this.client = client;
+        this.scheduler = scheduler;
+        String parent = directory == null || directory.isEmpty() ? new File(System.getProperty("java.io.tmpdir"), "mqtt-offline").getPath() : directory;
+        this.directory = new File(parent, id.replaceAll("[^A-Za-z0-9._-]", "_"));
+        this.maxBytes = Math.max(1024, maxBytes);
+        // 至少分成 4 个文件, 丢弃最早的文件时不会丢掉太多
+        this.segmentBytes = Math.max(HEADER, Math.min(segmentBytes, this.maxBytes / 4));
+        this.dropPolicy = dropPolicy == null ? OfflineDropPolicy.OLDEST : dropPolicy;
+        this.batch = drainRate > 0 ? Math.max(1, (int) (drainRate * TICK_MILLIS / 1000)) : Integer.MAX_VALUE;
+        try {
+            if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+                throw new IOException("cannot create directory");
+            }
+            this.position = FileChannel.open(new File(this.directory, POSITION).toPath()
+                    , StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
+        } catch (IOException e) {
+            throw new IllegalStateException("mqtt client '" + id + "' offline buffer " + this.directory + " error: " + e.getMessage(), e);
+        }
+        if (readSeq < writeSeq) {
+            log.info("mqtt client '{}' has {} offline messages in {}.", id, writeSeq - readSeq, this.directory);
+        }
+    }
+
+    /**
+     * 没有连接或还有没发送完的缓存时, 把消息追加到文件中
+     *
+     * @return 是否已缓存, 返回 false 时直接发送
+     */
+    boolean offer(String topic, MqttMessage message, IMqttActionListener callback) {
+        synchronized (this) {
+            boolean connected = client.isConnected();
+            if (connected && readSeq == writeSeq) {
+                return false;
+            }
+            write(topic, message, callback);
+            if (connected) {
+                resume();
+            }
+        }
+        notifyFailures();
+        return true;
+    }
+
+    /**
+     * 把消息追加到文件中, 缓存已满时按 dropPolicy 丢弃消息
+     */
+    void append(String topic, MqttMessage message, IMqttActionListener callback) {
+        write(topic, message, callback);
+        notifyFailures();
+    }
+
+    private synchronized void write(String topic, MqttMessage message, IMqttActionListener callback) {
+        if (closed) {
+            fail(callback, new IllegalStateException("client closed"));
+            return;
+        }
+        if (!warned) {
+            warned = true;
+            log.warn("mqtt client '{}' is offline, buffer messages to {}.", id, directory);
+        }
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = message.getPayload();
+        int length = HEADER - 8 + topicBytes.length + payload.length;
+        long size = 8L + length;
+        try {
+            if (!reserve(size)) {
+                dropped++;
+                fail(callback, new IllegalStateException("offline buffer is full"));
+                return;
+            }
+            Segment tail = segments.peekLast();
+            if (tail == null || writer == null || (tail.count > 0 && tail.size + size > segmentBytes)) {
+                tail = rotate();
+            }
+            header.clear();
+            header.putInt(length).putInt(0)
+                    .put((byte) (message.getQos() | (message.isRetained() ? 4 : 0)))
+                    .putShort((short) topicBytes.length);
+            crc.reset();
+            crc.update(header.array(), 8, HEADER - 8);
+            crc.update(topicBytes, 0, topicBytes.length);
+            crc.update(payload, 0, payload.length);
+            header.putInt(4, (int) crc.getValue());
+            header.flip();
+            ByteBuffer[] buffers = {header, ByteBuffer.wrap(topicBytes), ByteBuffer.wrap(payload)};
+            writer.position(tail.size);
+            long remaining = size;
+            while (remaining > 0) {
+                remaining -= writer.write(buffers);
+            }
+            tail.size += size;
+            tail.count++;
+            totalBytes += size;
+            if (callback != null) {
+                callbacks.put(writeSeq, callback);
+            }
+            writeSeq++;
+        } catch (IOException e) {
+            log.error("mqtt client '{}' offline buffer write error: {}", id, e.getMessage(), e);
+            fail(callback, e);
+        }
+    }
+
+    /**
+     * 连接后开始发送缓存的消息
+     */
+    synchronized void resume() {
+        if (!closed && !draining && sendSeq < writeSeq) {
+            draining = true;
+            task = scheduler.schedule(this::drain, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drain() {
+        send();
+        notifyFailures();
+    }
+
+    /**
+     * 按 drainRate 把缓存的消息交给客户端发送, 收到确认后才移动保存的位置
+     */
+    private synchronized void send() {
+        if (closed) {
+            return;
+        }
+        try {
+            int budget = batch;
+            while (sendSeq < writeSeq) {
+                if (budget-- <= 0) {
+                    task = scheduler.schedule(this::drain, TICK_MILLIS, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                long seq = sendSeq;
+                long offset = sendOffset;
+                Record record = read();
+                if (record == null) {
+                    continue;
+                }
+                if (done.contains(seq)) {
+                    // 重新发送时跳过已经确认的消息
+                    sendSeq++;
+                    sendOffset = record.next;
+                    continue;
+                }
+                try {
+                    client.publish(record.topic, record.message, null, new Completion(seq, offset));
+                } catch (MqttException e) {
+                    if (e.getReasonCode() == MqttException.REASON_CODE_CLIENT_NOT_CONNECTED) {
+                        // 等下一次连接
+                        draining = false;
+                        return;
+                    }
+                    if (e.getReasonCode() == MqttException.REASON_CODE_MAX_INFLIGHT) {
+                        task = scheduler.schedule(this::drain, 10, TimeUnit.MILLISECONDS);
+                        return;
+                    }
+                    log.error("message publish error: {}", e.getMessage(), e);
+                    fail(callbacks.remove(seq), e);
+                    done.add(seq);
+                }
+                sendSeq++;
+                sendOffset = record.next;
+            }
+            draining = false;
+            advance();
+        } catch (IOException | RuntimeException e) {
+            draining = false;
+            log.error("mqtt client '{}' offline buffer read error: {}", id, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 读取 sendSeq 这一条消息, 内容损坏时跳过这个文件剩下的消息并返回 null
+     */
+    private Record read() throws IOException {
+        if (reading == null || sendSeq >= reading.firstSeq + reading.count) {
+            // 前一个文件读完了, 从下一个文件的开头读
+            Segment next = segment(sendSeq);
+            if (next == null) {
+                sendSeq = writeSeq;
+                return null;
+            }
+            open(next, 0);
+        }
+        Record record = readRecord(reader, sendOffset);
+        if (record == null) {
+            Segment head = reading;
+            long end = head.firstSeq + head.count;
+            log.warn("mqtt client '{}' offline buffer {} is corrupted, skip {} messages.", id, head.file.getName(), end - sendSeq);
+            failRange(sendSeq, end, new IOException("offline buffer is corrupted"));
+            dropped += end - sendSeq;
+            for (long seq = sendSeq; seq < end; seq++) {
+                done.add(seq);
+            }
+            sendSeq = end;
+            if (head == segments.peekLast() && writer != null) {
+                // 后面的消息写到新的文件中
+                writer.close();
+                writer = null;
+            }
+            advance();
+        }
+        return record;
+    }
+
+    private Segment segment(long seq) {
+        for (Segment segment : segments) {
+            if (seq >= segment.firstSeq && seq < segment.firstSeq + segment.count) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    private void open(Segment segment, long offset) throws IOException {
+        if (reading != segment) {
+            closeReader();
+            reader = FileChannel.open(segment.file.toPath(), StandardOpenOption.READ);
+            reading = segment;
+        }
+        sendOffset = offset;
+    }
+
+    /**
+     * 消息发送完成(成功或不再重试), 从保存的位置开始连续完成的部分才移动位置并删除文件
+     */
+    private void complete(long seq) throws IOException {
+        if (seq < readSeq) {
+            return;
+        }
+        done.add(seq);
+        advance();
+    }
+
+    private void advance() throws IOException {
+        long from = readSeq;
+        while (readSeq < sendSeq && done.remove(readSeq)) {
+            readSeq++;
+        }
+        if (readSeq == from) {
+            return;
+        }
+        if (readSeq == writeSeq) {
+            clear();
+            warned = false;
+            log.info("mqtt client '{}' offline messages are all sent.", id);
+            return;
+        }
+        Segment head = segments.peekFirst();
+        while (head != null && readSeq >= head.firstSeq + head.count) {
+            removeHead();
+            head = segments.peekFirst();
+        }
+        savePosition();
+    }
+
+    /**
+     * 发送失败后从这一条开始重新发送
+     */
+    private void rewind(long seq, long offset) throws IOException {
+        if (seq < readSeq || seq >= sendSeq) {
+            return;
+        }
+        Segment segment = segment(seq);
+        if (segment == null) {
+            return;
+        }
+        open(segment, offset);
+        sendSeq = seq;
+    }
+
+    private boolean reserve(long size) throws IOException {
+        if (size > maxBytes) {
+            return false;
+        }
+        while (totalBytes + size > maxBytes) {
+            if (dropPolicy == OfflineDropPolicy.NEWEST || segments.isEmpty()) {
+                return false;
+            }
+            Segment head = segments.peekFirst();
+            long from = Math.max(readSeq, head.firstSeq);
+            long to = head.firstSeq + head.count;
+            if (to > from) {
+                log.warn("mqtt client '{}' offline buffer is full, drop {} oldest messages.", id, to - from);
+                failRange(from, to, new IllegalStateException("offline buffer is full"));
+                dropped += to - from;
+            }
+            removeHead();
+            if (readSeq < to) {
+                readSeq = to;
+            }
+            if (sendSeq < to) {
+                sendSeq = to;
+            }
+            done.headSet(to).clear();
+            savePosition();
+        }
+        return true;
+    }
+
+    private Segment rotate() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+        Segment segment = new Segment(writeSeq, new File(directory, String.format("%020d", writeSeq) + SUFFIX));
+        writer = FileChannel.open(segment.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void removeHead() throws IOException {
+        Segment head = segments.pollFirst();
+        if (head == null) {
+            return;
+        }
+        if (reading == head) {
+            closeReader();
+        }
+        if (segments.isEmpty() && writer != null) {
+            writer.close();
+            writer = null;
+        }
+        totalBytes -= head.size;
+        if (!head.file.delete()) {
+            log.warn("mqtt client '{}' offline buffer {} delete failure.", id, head.file);
+        }
+    }
+
+    /**
+     * 全部发送完后删除所有文件
+     */
+    private void clear() throws IOException {
+        while (!segments.isEmpty()) {
+            removeHead();
+        }
+        totalBytes = 0;
+        savePosition();
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                long firstSeq;
+                try {
+                    firstSeq = Long.parseLong(file.getName().substring(0, file.getName().length() - SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                Segment segment = new Segment(firstSeq, file);
+                scan(segment);
+                segments.addLast(segment);
+                totalBytes += segment.size;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        long saved = position.read(buffer, 0) == 8 ? buffer.getLong(0) : 0;
+        Segment last = segments.peekLast();
+        writeSeq = last == null ? saved : last.firstSeq + last.count;
+        readSeq = Math.min(Math.max(saved, segments.isEmpty() ? saved : segments.peekFirst().firstSeq), writeSeq);
+        while (!segments.isEmpty() && readSeq >= segments.peekFirst().firstSeq + segments.peekFirst().count && segments.size() > 1) {
+            removeHead();
+        }
+        sendSeq = readSeq;
+        Segment head = segments.peekFirst();
+        if (head != null) {
+            // 跳过第一个文件中已发送的消息
+            open(head, 0);
+            for (long seq = head.firstSeq; seq < readSeq; seq++) {
+                sendOffset = readRecord(reader, sendOffset).next;
+            }
+        }
+        if (last != null) {
+            writer = FileChannel.open(last.file.toPath(), StandardOpenOption.WRITE);
+        }
+    }
+
+    /**
+     * 统计文件中的消息, 截掉最后不完整或损坏的部分
+     */
+    private void scan(Segment segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            Record record;
+            while ((record = readRecord(channel, offset)) != null) {
+                offset = record.next;
+                segment.count++;
+            }
+            if (offset < channel.size()) {
+                log.warn("mqtt client '{}' offline buffer {} truncated at {}.", id, segment.file.getName(), offset);
+                channel.truncate(offset);
+            }
+            segment.size = offset;
+        }
+    }
+
+    /**
+     * 读取一条消息, 不完整或 CRC 不一致时返回 null
+     */
+    private Record readRecord(FileChannel channel, long offset) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(HEADER);
+        if (!readFully(channel, head, offset)) {
+            return null;
+        }
+        int length = head.getInt(0);
+        int topicLength = head.getShort(9) & 0xffff;
+        if (length < HEADER - 8 + topicLength || offset + 8 + length > channel.size()) {
+            return null;
+        }
+        byte[] topic = new byte[topicLength];
+        byte[] payload = new byte[length - (HEADER - 8) - topicLength];
+        if (!readFully(channel, ByteBuffer.wrap(topic), offset + HEADER)
+                || !readFully(channel, ByteBuffer.wrap(payload), offset + HEADER + topicLength)) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(head.array(), 8, HEADER - 8);
+        crc.update(topic, 0, topic.length);
+        crc.update(payload, 0, payload.length);
+        if ((int) crc.getValue() != head.getInt(4)) {
+            return null;
+        }
+        MqttMessage message = new MqttMessage(payload);
+        message.setQos(head.get(8) & 3);
+        message.setRetained((head.get(8) & 4) != 0);
+        return new Record(new String(topic, StandardCharsets.UTF_8), message, offset + 8 + length);
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, offset + buffer.position());
+            if (n < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void savePosition() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(0, readSeq);
+        position.write(buffer, 0);
+    }
+
+    private void closeReader() throws IOException {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+            reading = null;
+        }
+    }
+
+    private void failRange(long from, long to, Throwable exception) {
+        if (callbacks.isEmpty()) {
+            return;
+        }
+        for (long seq = from; seq < to; seq++) {
+            fail(callbacks.remove(seq), exception);
+        }
+    }
+
+    private void fail(IMqttActionListener callback, Throwable exception) {
+        if (callback != null) {
+            failures.add(() -> callback.onFailure(null, exception));
+        }
+    }
+
+    /**
+     * 在锁外调用失败的回调, 回调中可能会获取其他的锁(如合并消息的主题)
+     */
+    private void notifyFailures() {
+        Runnable[] pending;
+        synchronized (this) {
+            if (failures.isEmpty()) {
+                return;
+            }
+            pending = failures.toArray(new Runnable[0]);
+            failures.clear();
+        }
+        for (Runnable failure : pending) {
+            failure.run();
+        }
+    }
+
+    /**
+     * 关闭, 未发送的消息保留在文件中, 下次启动后发送, 它们的回调失败
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (task != null) {
+                task.cancel(false);
+                task = null;
+            }
+            failRange(readSeq, writeSeq, new IllegalStateException("client closed, message is kept in offline buffer"));
+            try {
+                savePosition();
+                closeReader();
+                if (writer != null) {
+                    writer.close();
+                    writer = null;
+                }
+                position.close();
+            } catch (IOException e) {
+                log.warn("mqtt client '{}' offline buffer close error: {}", id, e.getMessage());
+            }
+        }
+        notifyFailures();
+    }
+
+    /**
+     * 缓存文件的目录
+     *
+     * @return File
+     */
+    public File directory() {
+        return directory;
+    }
+
+    /**
+     * 还没有发送完成(包括已交给客户端但还没有确认)的消息数量
+     *
+     * @return long
+     */
+    public synchronized long buffered() {
+        return writeSeq - readSeq;
+    }
+
+    /**
+     * 缓存文件的总大小(字节)
+     *
+     * @return long
+     */
+    public synchronized long bufferedBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * 缓存已满或文件损坏丢弃的消息数量
+     *
+     * @return long
+     */
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    /**
+     * 连接后从缓存发送并确认的消息数量
+     *
+     * @return long
+     */
+    public synchronized long drained() {
+        return drained;
+    }
+
+    /**
+     * 缓存的消息发送完成后移动保存的位置, 因为断开连接失败时重新发送, 之后再通知用户的回调
+     */
+    private final class Completion implements IMqttActionListener {
+        private final long seq;
+        private final long offset;
+
+        private Completion(long seq, long offset) {
+            this.seq = seq;
+            this.offset = offset;
+        }
+
+        @Override
+        public void onSuccess(IMqttToken asyncActionToken) {
+            IMqttActionListener callback;
+            synchronized (OfflineBuffer.this) {
+                if (closed) {
+                    return;
+                }
+                callback = callbacks.remove(seq);
+                if (seq >= readSeq) {
+                    drained++;
+                }
+                try {
+                    complete(seq);
+                } catch (IOException e) {
+                    log.warn("mqtt client '{}' offline buffer save position error: {}", id, e.getMessage());
+                }
+            }
+            if (callback != null) {
+                callback.onSuccess(asyncActionToken);
+            }
+        }
+
+        @Override
+        public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+            IMqttActionListener callback = null;
+            synchronized (OfflineBuffer.this) {
+                if (closed) {
+                    return;
+                }
+                try {
+                    if (disconnected(exception)) {
+                        rewind(seq, offset);
+                        if (client.isConnected()) {
+                            resume();
+                        }
+                    } else {
+                        callback = callbacks.remove(seq);
+                        complete(seq);
+                    }
+                } catch (IOException e) {
+                    log.warn("mqtt client '{}' offline buffer error: {}", id, e.getMessage());
+                }
+            }
+            if (callback != null) {
+                callback.onFailure(asyncActionToken, exception);
+            }
+        }
+    }
+
+    private static boolean disconnected(Throwable exception) {
+        if (!(exception instanceof MqttException)) {
+            return false;
+        }
+        int code = ((MqttException) exception).getReasonCode();
+        return code == MqttException.REASON_CODE_CONNECTION_LOST
+                || code == MqttException.REASON_CODE_CLIENT_NOT_CONNECTED
+                || code == MqttException.REASON_CODE_CLIENT_DISCONNECTING
+                || code == MqttException.REASON_CODE_CLIENT_TIMEOUT;
+    }
+
+    private static final class Segment {
+        private final long firstSeq;
+        private final File file;
+        private long size;
+        private long count;
+
+        private Segment(long firstSeq, File file) {
+            this.firstSeq = firstSeq;
+            this.file = file;
+        }
+    }
+
+    private static final class Record {
+        private final String topic;
+        private final MqttMessage message;
+        private final long next;
+
+        private Record(String topic, MqttMessage message, long next) {
+            this.topic = topic;
+            this.message = message;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.tocrhz.mqtt.publisher;
+
+/**
+ * 离线缓存已满时丢弃消息的方式.
+ *
+ * @author tocrhz
+ */
+public enum OfflineDropPolicy {
+    /**
+     * 丢弃最早的消息(整个文件), 保留最新的.
+     */
+    OLDEST,
+    /**
+     * 丢弃新的消息, 保留已缓存的.
+     */
+    NEWEST
+}
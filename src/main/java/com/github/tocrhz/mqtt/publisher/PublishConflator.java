@@ -0,0 +1,341 @@
+package com.github.tocrhz.mqtt.publisher;
+
+import com.github.tocrhz.mqtt.properties.ConflationProperties;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttTopic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按主题合并发布的消息, 只发布最新的值, 用于状态类的主题.
+ * <p>
+ * 同一主题的上一条消息还没有发送完成, 或距上一次发布不到 interval 时, 新的消息替换等待中的消息, 发送完成或间隔到了之后发布最新的一条.
+ * 被替换的消息的回调在替换它的消息发送完成后调用, 忽略的重复消息(内容, qos 和 retained 都相同)的回调使用与它相同的那一条消息的结果.
+ * <p>
+ * 每个匹配的主题保留一个状态, 开启 suppressDuplicates 时还保留上一次发布的内容, 适合数量有限的主题.
+ * 状态在 synchronized 中读写, 发布和回调在释放锁之后调用, 同一主题同时只有一条消息在发送, 所以不会乱序.
+ * 关闭后等待中的消息不再发布, 回调失败.
+ *
+ * @author tocrhz
+ */
+public final class PublishConflator {
+
+    /**
+     * 实际发布消息
+     */
+    interface Publisher {
+        /**
+         * 发布消息, 失败时调用 callback 的 onFailure
+         */
+        void publish(String topic, byte[] payload, int qos, boolean retained, IMqttActionListener callback);
+    }
+
+    private final ConflationProperties.Rule[] rules;
+    private final Publisher publisher;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private volatile boolean closed;
+
+    PublishConflator(ConflationProperties.Rule[] rules, Publisher publisher, ScheduledExecutorService scheduler) {
+        this.rules = rules;
+        this.publisher = publisher;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 按规则合并消息
+     *
+     * @return 没有匹配的规则时返回 false, 由调用方直接发布
+     */
+    boolean offer(String topic, byte[] payload, int qos, boolean retained, IMqttActionListener callback) {
+        if (closed) {
+            if (match(topic) == null) {
+                return false;
+            }
+            if (callback != null) {
+                callback.onFailure(null, new IllegalStateException("client closed"));
+            }
+            return true;
+        }
+        Slot slot = slots.get(topic);
+        if (slot == null) {
+            ConflationProperties.Rule rule = match(topic);
+            if (rule == null) {
+                return false;
+            }
+            slot = slots.computeIfAbsent(topic, key -> new Slot(key, rule));
+        }
+        slot.offer(payload, qos, retained, callback);
+        return true;
+    }
+
+    /**
+     * 关闭, 等待中的消息不再发布, 回调失败
+     */
+    void close() {
+        closed = true;
+        IllegalStateException exception = new IllegalStateException("client closed");
+        for (Slot slot : slots.values()) {
+            List<IMqttActionListener> callbacks = slot.close();
+            if (callbacks != null) {
+                for (IMqttActionListener callback : callbacks) {
+                    callback.onFailure(null, exception);
+                }
+            }
+        }
+    }
+
+    private ConflationProperties.Rule match(String topic) {
+        for (ConflationProperties.Rule rule : rules) {
+            if (MqttTopic.isMatched(rule.getTopic(), topic)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 实际发布的消息数量
+     *
+     * @return long
+     */
+    public long published() {
+        return published.sum();
+    }
+
+    /**
+     * 被更新的消息替换, 没有发布的消息数量
+     *
+     * @return long
+     */
+    public long conflated() {
+        return conflated.sum();
+    }
+
+    /**
+     * 与上一条内容, qos 和 retained 都相同被忽略的消息数量
+     *
+     * @return long
+     */
+    public long suppressed() {
+        return suppressed.sum();
+    }
+
+    /**
+     * 一个主题的发布状态, 所有字段在 synchronized 中读写, 在锁外发布
+     */
+    private final class Slot {
+        private final String topic;
+        private final long intervalNanos;
+        private final boolean suppressDuplicates;
+        private byte[] last;
+        private int lastQos;
+        private boolean lastRetained;
+        private byte[] pending;
+        private int qos;
+        private boolean retained;
+        private List<IMqttActionListener> callbacks;
+        private List<IMqttActionListener> inFlightCallbacks;
+        private IMqttToken lastToken;
+        private boolean inFlight;
+        private boolean closed;
+        private ScheduledFuture<?> timer;
+        private long next;
+
+        private Slot(String topic, ConflationProperties.Rule rule) {
+            this.topic = topic;
+            this.intervalNanos = rule.getInterval() == null ? 0 : TimeUnit.MILLISECONDS.toNanos(Math.max(0, rule.getInterval()));
+            this.suppressDuplicates = Boolean.TRUE.equals(rule.getSuppressDuplicates());
+        }
+
+        private void offer(byte[] payload, int qos, boolean retained, IMqttActionListener callback) {
+            Runnable send = null;
+            IMqttToken token = null;
+            boolean duplicate = false;
+            boolean rejected = false;
+            synchronized (this) {
+                if (closed) {
+                    rejected = true;
+                } else if (suppressDuplicates && sameAsLatest(payload, qos, retained)) {
+                    suppressed.increment();
+                    if (callback == null) {
+                        return;
+                    }
+                    if (pending != null) {
+                        callbacks(callback);
+                        return;
+                    }
+                    if (inFlight) {
+                        inFlightCallbacks.add(callback);
+                        return;
+                    }
+                    // 与上一次已发送完成的内容相同
+                    duplicate = true;
+                    token = lastToken;
+                } else {
+                    if (pending != null) {
+                        conflated.increment();
+                    }
+                    this.pending = payload;
+                    this.qos = qos;
+                    this.retained = retained;
+                    if (callback != null) {
+                        callbacks(callback);
+                    }
+                    send = drain();
+                }
+            }
+            if (rejected) {
+                if (callback != null) {
+                    callback.onFailure(null, new IllegalStateException("client closed"));
+                }
+            } else if (duplicate) {
+                callback.onSuccess(token);
+            } else if (send != null) {
+                send.run();
+            }
+        }
+
+        /**
+         * 与等待中的消息, 没有等待中的消息时与上一次发布的消息相比, 内容, qos 和 retained 都相同, 在锁内调用
+         */
+        private boolean sameAsLatest(byte[] payload, int qos, boolean retained) {
+            if (pending != null) {
+                return this.qos == qos && this.retained == retained && Arrays.equals(pending, payload);
+            }
+            return lastQos == qos && lastRetained == retained && Arrays.equals(last, payload);
+        }
+
+        private void callbacks(IMqttActionListener callback) {
+            if (callbacks == null) {
+                callbacks = new ArrayList<>(1);
+            }
+            callbacks.add(callback);
+        }
+
+        /**
+         * 没有正在发送的消息并且间隔已到时取出等待中的消息, 在锁内调用
+         *
+         * @return 在锁外执行的发布, 不需要发布时为 null
+         */
+        private Runnable drain() {
+            if (closed || inFlight || pending == null) {
+                return null;
+            }
+            long now = System.nanoTime();
+            if (intervalNanos > 0 && next - now > 0) {
+                if (timer == null) {
+                    timer = scheduler.schedule(this::flush, next - now, TimeUnit.NANOSECONDS);
+                }
+                return null;
+            }
+            byte[] payload = pending;
+            int qos = this.qos;
+            boolean retained = this.retained;
+            this.pending = null;
+            // 重复的消息在发送中时也会加入回调
+            this.inFlightCallbacks = callbacks == null && suppressDuplicates ? new ArrayList<>(1) : callbacks;
+            this.callbacks = null;
+            this.inFlight = true;
+            this.last = suppressDuplicates ? payload : null;
+            this.lastQos = qos;
+            this.lastRetained = retained;
+            this.next = now + intervalNanos;
+            published.increment();
+            return () -> publisher.publish(topic, payload, qos, retained, new Completion(this));
+        }
+
+        private void flush() {
+            Runnable send;
+            synchronized (this) {
+                timer = null;
+                send = drain();
+            }
+            if (send != null) {
+                send.run();
+            }
+        }
+
+        /**
+         * 关闭, 返回等待中的消息的回调, 发送中的消息完成时仍然通知它的回调
+         */
+        private synchronized List<IMqttActionListener> close() {
+            closed = true;
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            List<IMqttActionListener> callbacks = this.callbacks;
+            this.callbacks = null;
+            this.pending = null;
+            return callbacks;
+        }
+
+        /**
+         * 发送完成, 发布等待中的消息, 返回这条消息和被它替换的消息的回调
+         */
+        private List<IMqttActionListener> complete(boolean success, IMqttToken token) {
+            List<IMqttActionListener> callbacks;
+            Runnable send;
+            synchronized (this) {
+                callbacks = inFlightCallbacks;
+                inFlightCallbacks = null;
+                inFlight = false;
+                if (success) {
+                    lastToken = suppressDuplicates ? token : null;
+                } else {
+                    // 发送失败时相同的内容可以重新发布
+                    last = null;
+                    lastToken = null;
+                }
+                send = drain();
+            }
+            if (send != null) {
+                send.run();
+            }
+            return callbacks;
+        }
+    }
+
+    /**
+     * 发送完成后发布等待中的消息, 并通知这条消息和被它替换的消息的回调
+     */
+    private static final class Completion implements IMqttActionListener {
+        private final Slot slot;
+
+        private Completion(Slot slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public void onSuccess(IMqttToken asyncActionToken) {
+            List<IMqttActionListener> callbacks = slot.complete(true, asyncActionToken);
+            if (callbacks != null) {
+                for (IMqttActionListener callback : callbacks) {
+                    callback.onSuccess(asyncActionToken);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+            List<IMqttActionListener> callbacks = slot.complete(false, asyncActionToken);
+            if (callbacks != null) {
+                for (IMqttActionListener callback : callbacks) {
+                    callback.onFailure(asyncActionToken, exception);
+                }
+            }
+        }
+    }
+}
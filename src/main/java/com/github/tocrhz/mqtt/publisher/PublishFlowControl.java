@@ -0,0 +1,367 @@
+package com.github.tocrhz.mqtt.publisher;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发布消息的流量控制.
+ * <p>
+ * 发送中(未收到确认)的消息达到窗口大小, 没有连接或超过速率限制时, 消息按顺序排队, 有确认, 重新连接或令牌补充后继续发送.
+ * 窗口默认为 maxInflight, 开启 adaptive 时按确认耗时调整: 低于 targetLatency 时每个窗口的确认增加 1, 超过时减为 3/4.
+ * 速率限制为令牌桶, 最多积累一秒的令牌; 超过一秒额度的单条消息在令牌满时发送, 之后的消息等待补齐.
+ * <p>
+ * 所有状态在 synchronized 中读写, 在锁内调用 publish 以保证顺序; 失败的回调在释放锁之后调用.
+ * 关闭后排队的消息和新提交的消息都失败, 已交给客户端的消息由客户端通知结果.
+ *
+ * @author tocrhz
+ */
+public final class PublishFlowControl {
+    private final static Logger log = LoggerFactory.getLogger(PublishFlowControl.class);
+
+    private final String id;
+    private final IMqttAsyncClient client;
+    private final ScheduledExecutorService scheduler;
+    private final int queueCapacity;
+    private final int maxWindow;
+    private final boolean adaptive;
+    private final long targetNanos;
+    private final TokenBucket messages;
+    private final TokenBucket bytes;
+
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private final ArrayList<Runnable> failures = new ArrayList<>();
+    private int inFlight;
+    private int window;
+    private double growth;
+    private long decreased;
+    private long latencyNanos;
+    private boolean disconnected;
+    private boolean closed;
+    private ScheduledFuture<?> timer;
+    private long rejected;
+    private long published;
+
+    PublishFlowControl(String id, IMqttAsyncClient client, ScheduledExecutorService scheduler
+            , int maxInflight, int queueCapacity, boolean adaptive, int targetLatency
+            , int messagesPerSecond, int bytesPerSecond) {
+        this.id = id;
+        this.client = client;
+        this.scheduler = scheduler;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.maxWindow = Math.max(1, maxInflight);
+        this.window = maxWindow;
+        this.adaptive = adaptive;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, targetLatency));
+        this.messages = messagesPerSecond > 0 ? new TokenBucket(messagesPerSecond) : null;
+        this.bytes = bytesPerSecond > 0 ? new TokenBucket(bytesPerSecond) : null;
+    }
+
+    /**
+     * 发送或排队, 队列已满或发送失败时调用 callback 的 onFailure
+     */
+    void submit(String topic, MqttMessage message, IMqttActionListener callback) {
+        synchronized (this) {
+            if (closed) {
+                fail(callback, new IllegalStateException("client closed"));
+            } else if (queue.size() >= queueCapacity) {
+                rejected++;
+                log.error("mqtt client '{}' publish queue is full ({}), message to '{}' dropped.", id, queueCapacity, topic);
+                fail(callback, new IllegalStateException("publish queue is full"));
+            } else {
+                queue.add(new Pending(topic, message, callback));
+                drain();
+            }
+        }
+        notifyFailures();
+    }
+
+    /**
+     * 连接成功后继续发送
+     */
+    void resume() {
+        synchronized (this) {
+            disconnected = false;
+            drain();
+        }
+        notifyFailures();
+    }
+
+    private void drain() {
+        while (!closed && !disconnected && inFlight < window && !queue.isEmpty()) {
+            Pending pending = queue.peek();
+            long now = System.nanoTime();
+            long wait = Math.max(messages == null ? 0 : messages.wait(1, now)
+                    , bytes == null ? 0 : bytes.wait(pending.message.getPayload().length, now));
+            if (wait > 0) {
+                schedule(wait);
+                return;
+            }
+            // 先出队再发布, 完成的回调在当前线程中执行时也不会影响队列
+            int size = pending.message.getPayload().length;
+            queue.poll();
+            inFlight++;
+            take(1, size);
+            try {
+                client.publish(pending.topic, pending.message, null, new Completion(pending.callback, now));
+            } catch (MqttException e) {
+                inFlight--;
+                if (e.getReasonCode() == MqttException.REASON_CODE_CLIENT_NOT_CONNECTED) {
+                    // 重新连接后继续发送
+                    take(-1, -size);
+                    queue.addFirst(pending);
+                    disconnected = true;
+                    return;
+                }
+                if (e.getReasonCode() == MqttException.REASON_CODE_MAX_INFLIGHT) {
+                    // 其他地方也在用这个客户端发布, 等下一个确认
+                    take(-1, -size);
+                    queue.addFirst(pending);
+                    if (inFlight == 0) {
+                        schedule(TimeUnit.MILLISECONDS.toNanos(10));
+                    }
+                    return;
+                }
+                log.error("message publish error: {}", e.getMessage(), e);
+                fail(pending.callback, e);
+                continue;
+            } catch (RuntimeException e) {
+                inFlight--;
+                log.error("message publish error: {}", e.getMessage(), e);
+                fail(pending.callback, e);
+                continue;
+            }
+            published++;
+        }
+    }
+
+    private void fail(IMqttActionListener callback, Throwable exception) {
+        if (callback != null) {
+            failures.add(() -> callback.onFailure(null, exception));
+        }
+    }
+
+    /**
+     * 在锁外调用失败的回调, 回调中可能会获取其他的锁(如合并消息的主题)
+     */
+    private void notifyFailures() {
+        Runnable[] pending;
+        synchronized (this) {
+            if (failures.isEmpty()) {
+                return;
+            }
+            pending = failures.toArray(new Runnable[0]);
+            failures.clear();
+        }
+        for (Runnable failure : pending) {
+            failure.run();
+        }
+    }
+
+    private void take(int count, int size) {
+        if (messages != null) {
+            messages.take(count);
+        }
+        if (bytes != null) {
+            bytes.take(size);
+        }
+    }
+
+    private void schedule(long nanos) {
+        if (timer == null) {
+            timer = scheduler.schedule(this::flush, nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flush() {
+        synchronized (this) {
+            timer = null;
+            drain();
+        }
+        notifyFailures();
+    }
+
+    /**
+     * 关闭, 排队的消息不再发送, 回调失败
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            IllegalStateException exception = new IllegalStateException("client closed");
+            Pending pending;
+            while ((pending = queue.poll()) != null) {
+                fail(pending.callback, exception);
+            }
+        }
+        notifyFailures();
+    }
+
+    private void complete(long start, boolean success) {
+        synchronized (this) {
+            update(start, success);
+            drain();
+        }
+        notifyFailures();
+    }
+
+    /**
+     * 记录确认耗时, 开启 adaptive 时调整窗口
+     */
+    private void update(long start, boolean success) {
+        inFlight--;
+        long now = System.nanoTime();
+        long latency = now - start;
+        latencyNanos = latencyNanos == 0 ? latency : latencyNanos + (latency - latencyNanos) / 8;
+        if (adaptive && success) {
+            if (latency > targetNanos) {
+                // 每个耗时周期最多减少一次
+                if (now - decreased > latencyNanos) {
+                    window = Math.max(1, window * 3 / 4);
+                    growth = 0;
+                    decreased = now;
+                }
+            } else if (window < maxWindow) {
+                growth += 1.0 / window;
+                if (growth >= 1) {
+                    window++;
+                    growth = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * 等待发送的消息数量
+     *
+     * @return int
+     */
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    /**
+     * 发送中(未收到确认)的消息数量
+     *
+     * @return int
+     */
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * 当前同时发送的消息数量上限
+     *
+     * @return int
+     */
+    public synchronized int window() {
+        return window;
+    }
+
+    /**
+     * 确认耗时的滑动平均(纳秒)
+     *
+     * @return long
+     */
+    public synchronized long latencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * 已交给客户端发送的消息数量
+     *
+     * @return long
+     */
+    public synchronized long published() {
+        return published;
+    }
+
+    /**
+     * 队列已满被丢弃的消息数量
+     *
+     * @return long
+     */
+    public synchronized long rejected() {
+        return rejected;
+    }
+
+    private static final class Pending {
+        private final String topic;
+        private final MqttMessage message;
+        private final IMqttActionListener callback;
+
+        private Pending(String topic, MqttMessage message, IMqttActionListener callback) {
+            this.topic = topic;
+            this.message = message;
+            this.callback = callback;
+        }
+    }
+
+    private final class Completion implements IMqttActionListener {
+        private final IMqttActionListener callback;
+        private final long start;
+
+        private Completion(IMqttActionListener callback, long start) {
+            this.callback = callback;
+            this.start = start;
+        }
+
+        @Override
+        public void onSuccess(IMqttToken asyncActionToken) {
+            complete(start, true);
+            if (callback != null) {
+                callback.onSuccess(asyncActionToken);
+            }
+        }
+
+        @Override
+        public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+            complete(start, false);
+            if (callback != null) {
+                callback.onFailure(asyncActionToken, exception);
+            }
+        }
+    }
+
+    /**
+     * 令牌桶, 每秒补充 rate 个, 最多积累 rate 个
+     */
+    private static final class TokenBucket {
+        private final double rate;
+        private double tokens;
+        private long updated;
+
+        private TokenBucket(int rate) {
+            this.rate = rate;
+            this.tokens = rate;
+            this.updated = System.nanoTime();
+        }
+
+        /**
+         * 需要等待的时间(纳秒), 超过一秒额度的数量只需要等到令牌满
+         */
+        private long wait(int cost, long now) {
+            tokens = Math.min(rate, tokens + (now - updated) * rate / 1e9);
+            updated = now;
+            double need = Math.min(cost, rate) - tokens;
+            return need <= 0 ? 0 : (long) Math.ceil(need / rate * 1e9);
+        }
+
+        private void take(int cost) {
+            tokens -= cost;
+        }
+    }
+}
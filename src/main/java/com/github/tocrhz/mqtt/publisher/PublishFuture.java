@@ -0,0 +1,33 @@
+package com.github.tocrhz.mqtt.publisher;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 把发送完成的回调转为 CompletableFuture
+ *
+ * @author tocrhz
+ */
+final class PublishFuture extends CompletableFuture<PublishResult> implements IMqttActionListener {
+    private final String topic;
+    private final int qos;
+    private final boolean retained;
+
+    PublishFuture(String topic, int qos, boolean retained) {
+        this.topic = topic;
+        this.qos = qos;
+        this.retained = retained;
+    }
+
+    @Override
+    public void onSuccess(IMqttToken asyncActionToken) {
+        complete(new PublishResult(topic, asyncActionToken == null ? 0 : asyncActionToken.getMessageId(), qos, retained));
+    }
+
+    @Override
+    public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+        completeExceptionally(exception);
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.tocrhz.mqtt.publisher;
+
+/**
+ * 待发送的消息, 用于 {@link SimpleMqttClient#sendAll(java.util.Collection)}
+ *
+ * @author tocrhz
+ */
+public final class PublishMessage {
+    private final String topic;
+    private final Object payload;
+    private final Integer qos;
+    private final boolean retained;
+
+    private PublishMessage(String topic, Object payload, Integer qos, boolean retained) {
+        this.topic = topic;
+        this.payload = payload;
+        this.qos = qos;
+        this.retained = retained;
+    }
+
+    /**
+     * 使用客户端默认的 QoS, 不保留
+     *
+     * @param topic   主题
+     * @param payload 消息内容
+     * @return PublishMessage
+     */
+    public static PublishMessage of(String topic, Object payload) {
+        return new PublishMessage(topic, payload, null, false);
+    }
+
+    public static PublishMessage of(String topic, Object payload, int qos, boolean retained) {
+        return new PublishMessage(topic, payload, qos, retained);
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public Object getPayload() {
+        return payload;
+    }
+
+    /**
+     * 服务质量
+     *
+     * @return Integer, 为 null 时使用客户端默认的 QoS
+     */
+    public Integer getQos() {
+        return qos;
+    }
+
+    public boolean isRetained() {
+        return retained;
+    }
+}
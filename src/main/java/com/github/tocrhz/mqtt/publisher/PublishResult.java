@@ -0,0 +1,46 @@
+package com.github.tocrhz.mqtt.publisher;
+
+/**
+ * 消息发送完成的结果
+ *
+ * @author tocrhz
+ */
+public final class PublishResult {
+    private final String topic;
+    private final int messageId;
+    private final int qos;
+    private final boolean retained;
+
+    public PublishResult(String topic, int messageId, int qos, boolean retained) {
+        this.topic = topic;
+        this.messageId = messageId;
+        this.qos = qos;
+        this.retained = retained;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * 消息ID, QoS 0 时为 0, 合并时被替换或忽略的消息为实际发送的那一条的ID
+     *
+     * @return int
+     */
+    public int getMessageId() {
+        return messageId;
+    }
+
+    public int getQos() {
+        return qos;
+    }
+
+    public boolean isRetained() {
+        return retained;
+    }
+
+    @Override
+    public String toString() {
+        return "PublishResult[topic=" + topic + ", messageId=" + messageId + ", qos=" + qos + ", retained=" + retained + "]";
+    }
+}
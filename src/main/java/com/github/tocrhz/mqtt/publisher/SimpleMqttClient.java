@@ -1,18 +1,36 @@
 package com.github.tocrhz.mqtt.publisher;
 
 import com.github.tocrhz.mqtt.convert.MqttConversionService;
+import com.github.tocrhz.mqtt.convert.PayloadCodec;
+import com.github.tocrhz.mqtt.convert.compress.PayloadCompressor;
+import com.github.tocrhz.mqtt.properties.CodecProperties;
+import com.github.tocrhz.mqtt.properties.CompressionProperties;
+import com.github.tocrhz.mqtt.properties.ConflationProperties;
+import com.github.tocrhz.mqtt.properties.DedupProperties;
+import com.github.tocrhz.mqtt.properties.DispatchProperties;
+import com.github.tocrhz.mqtt.properties.FlowProperties;
 import com.github.tocrhz.mqtt.properties.MqttConfigAdapter;
+import com.github.tocrhz.mqtt.properties.MqttConnectionProperties;
+import com.github.tocrhz.mqtt.properties.OfflineProperties;
+import com.github.tocrhz.mqtt.subscriber.DuplicateFilter;
+import com.github.tocrhz.mqtt.subscriber.MessageDispatcher;
 import com.github.tocrhz.mqtt.subscriber.MqttSubscriber;
 import com.github.tocrhz.mqtt.subscriber.TopicPair;
+import com.github.tocrhz.mqtt.subscriber.TopicRouter;
 import org.eclipse.paho.client.mqttv3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -27,6 +45,22 @@ public class SimpleMqttClient {
     private final int qos;
     private final ArrayList<MqttSubscriber> subscribers;
     private final MqttConfigAdapter adapter;
+    private final TopicRouter router;
+    private final Set<TopicPair> topics;
+    private final MessageDispatcher dispatcher;
+    private final boolean manualAcks;
+    private final Semaphore unackedPermits;
+    private final AtomicInteger unacked = new AtomicInteger();
+    private final DuplicateFilter duplicates;
+    private final CodecProperties.Rule[] codecRules;
+    private final Set<String> missingCodecs = ConcurrentHashMap.newKeySet();
+    private final PayloadCompressor compressor;
+    private final CompressionProperties.Rule[] compressionRules;
+    private final String[] decompressTopics;
+    private final PublishConflator conflator;
+    private final PublishFlowControl flow;
+    private final OfflineBuffer offline;
+    private volatile boolean closed;
 
     public String id() {
         return this.id;
@@ -48,6 +82,11 @@ public class SimpleMqttClient {
         return this.qos;
     }
 
+    /**
+     * 当前客户端处理消息的方法集合, 只包含这个客户端的方法, 修改后不影响已经创建的路由
+     *
+     * @return ArrayList
+     */
     public ArrayList<MqttSubscriber> subscribers() {
         return this.subscribers;
     }
@@ -56,6 +95,77 @@ public class SimpleMqttClient {
         return this.adapter;
     }
 
+    public TopicRouter router() {
+        return this.router;
+    }
+
+    public MessageDispatcher dispatcher() {
+        return this.dispatcher;
+    }
+
+    /**
+     * 是否手动确认消息
+     *
+     * @return boolean
+     */
+    public boolean manualAcks() {
+        return this.manualAcks;
+    }
+
+    /**
+     * 已接收但还没有确认的消息数量, 只在手动确认时统计
+     *
+     * @return int
+     */
+    public int unacked() {
+        return this.unacked.get();
+    }
+
+    /**
+     * 重复消息过滤
+     *
+     * @return DuplicateFilter, 没有开启时为 null
+     */
+    public DuplicateFilter duplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * 消息压缩, 包括压缩率和耗时等统计
+     *
+     * @return PayloadCompressor
+     */
+    public PayloadCompressor compressor() {
+        return this.compressor;
+    }
+
+    /**
+     * 按主题合并发布的消息
+     *
+     * @return PublishConflator, 没有配置规则时为 null
+     */
+    public PublishConflator conflator() {
+        return this.conflator;
+    }
+
+    /**
+     * 发布消息的流量控制, 包括队列长度和确认耗时等统计
+     *
+     * @return PublishFlowControl, 没有开启时为 null
+     */
+    public PublishFlowControl flow() {
+        return this.flow;
+    }
+
+    /**
+     * 没有连接时缓存消息的本地文件
+     *
+     * @return OfflineBuffer, 没有开启时为 null
+     */
+    public OfflineBuffer offline() {
+        return this.offline;
+    }
+
     /**
      * 简单封装下客户端
      *
@@ -64,37 +174,153 @@ public class SimpleMqttClient {
      * @param options      连接选项
      * @param enableShared 是否支持共享订阅
      * @param qos          默认的发布QOS
-     * @param subscribers  处理消息的方法集合
+     * @param subscribers  当前客户端处理消息的方法集合
      * @param adapter      扩展
      */
+    public SimpleMqttClient(String id, IMqttAsyncClient client, MqttConnectOptions options
+            , boolean enableShared, int qos
+            , MqttSubscriber[] subscribers
+            , MqttConfigAdapter adapter) {
+        this(id, client, options, enableShared, qos, subscribers, adapter, null);
+    }
+
+    /**
+     * 简单封装下客户端
+     *
+     * @param id           客户端ID
+     * @param client       客户端
+     * @param options      连接选项
+     * @param enableShared 是否支持共享订阅
+     * @param qos          默认的发布QOS
+     * @param subscribers  处理消息的方法集合, 按客户端ID筛选
+     * @param adapter      扩展
+     * @deprecated 使用 {@link #SimpleMqttClient(String, IMqttAsyncClient, MqttConnectOptions, boolean, int, MqttSubscriber[], MqttConfigAdapter)}, 传入已经筛选好的方法
+     */
+    @Deprecated
     public SimpleMqttClient(String id, IMqttAsyncClient client, MqttConnectOptions options
             , boolean enableShared, int qos
             , ArrayList<MqttSubscriber> subscribers
             , MqttConfigAdapter adapter) {
+        this(id, client, options, enableShared, qos, subscribers.stream()
+                .filter(subscriber -> subscriber.containsClientId(id))
+                .toArray(MqttSubscriber[]::new), adapter, null);
+    }
+
+    /**
+     * 简单封装下客户端
+     *
+     * @param id           客户端ID
+     * @param client       客户端
+     * @param options      连接选项
+     * @param enableShared 是否支持共享订阅
+     * @param qos          默认的发布QOS
+     * @param subscribers  当前客户端处理消息的方法集合
+     * @param adapter      扩展
+     * @param properties   客户端的配置, 为 null 时使用默认值
+     */
+    public SimpleMqttClient(String id, IMqttAsyncClient client, MqttConnectOptions options
+            , boolean enableShared, int qos
+            , MqttSubscriber[] subscribers
+            , MqttConfigAdapter adapter
+            , MqttConnectionProperties properties) {
         this.id = id;
         this.client = client;
         this.options = options;
         this.enableShared = enableShared;
         this.qos = qos;
-        this.subscribers = subscribers;
+        this.subscribers = new ArrayList<>(Arrays.asList(subscribers));
         this.adapter = adapter;
+        this.router = TopicRouter.of(subscribers);
+        this.topics = Collections.unmodifiableSet(mergeTopics(enableShared));
+        DispatchProperties dispatch = properties == null ? null : properties.getDispatch();
+        if (dispatch != null && dispatch.getThreads() != null) {
+            this.dispatcher = MessageDispatcher.of(id, dispatch.getThreads(), dispatch.getQueueCapacity(), dispatch.getRejectedPolicy()
+                    , Boolean.TRUE.equals(dispatch.getOrdered()), Boolean.TRUE.equals(dispatch.getVirtualThreads()));
+        } else {
+            this.dispatcher = null;
+        }
+        for (MqttSubscriber subscriber : subscribers) {
+            subscriber.checkOrdering(id, dispatcher);
+        }
+        this.manualAcks = dispatch != null && Boolean.TRUE.equals(dispatch.getManualAcks());
+        for (MqttSubscriber subscriber : subscribers) {
+            subscriber.checkManualAcks(id, manualAcks);
+        }
+        int maxUnacked = dispatch == null || dispatch.getMaxUnacked() == null ? 0 : dispatch.getMaxUnacked();
+        this.unackedPermits = manualAcks && maxUnacked > 0 ? new Semaphore(maxUnacked) : null;
+        DedupProperties dedup = properties == null ? null : properties.getDedup();
+        if (dedup != null && Boolean.TRUE.equals(dedup.getEnabled())) {
+            this.duplicates = new DuplicateFilter(dedup.getMode(), dedup.getMaxEntries(), dedup.getTtl());
+        } else {
+            this.duplicates = null;
+        }
+        CodecProperties codec = properties == null ? null : properties.getCodec();
+        this.codecRules = codec == null || codec.getRules() == null ? new CodecProperties.Rule[0]
+                : codec.getRules().stream()
+                .filter(rule -> StringUtils.hasText(rule.getTopic()) && StringUtils.hasText(rule.getCodec()))
+                .toArray(CodecProperties.Rule[]::new);
+        CompressionProperties compression = properties == null ? null : properties.getCompression();
+        this.compressor = compression == null || compression.getMaxSize() == null
+                ? new PayloadCompressor(compression == null || !Boolean.FALSE.equals(compression.getDecompress()))
+                : new PayloadCompressor(!Boolean.FALSE.equals(compression.getDecompress()), compression.getMaxSize());
+        CompressionProperties.Rule[] rules = compression == null || compression.getRules() == null ? new CompressionProperties.Rule[0]
+                : compression.getRules().stream()
+                .filter(rule -> StringUtils.hasText(rule.getTopic()))
+                .toArray(CompressionProperties.Rule[]::new);
+        this.compressionRules = Arrays.stream(rules).filter(rule -> rule.getAlgorithm() != null).toArray(CompressionProperties.Rule[]::new);
+        // 只有匹配规则的主题才识别压缩的消息头, 其他主题的二进制内容不会被误认为压缩的
+        this.decompressTopics = Arrays.stream(rules).map(CompressionProperties.Rule::getTopic).toArray(String[]::new);
+        ConflationProperties conflation = properties == null ? null : properties.getConflation();
+        ConflationProperties.Rule[] conflationRules = conflation == null || conflation.getRules() == null ? new ConflationProperties.Rule[0]
+                : conflation.getRules().stream()
+                .filter(rule -> StringUtils.hasText(rule.getTopic()))
+                .toArray(ConflationProperties.Rule[]::new);
+        this.conflator = conflationRules.length == 0 ? null : new PublishConflator(conflationRules, this::publish, scheduled);
+        FlowProperties flow = properties == null ? null : properties.getFlow();
+        if (flow != null && Boolean.TRUE.equals(flow.getEnabled())) {
+            this.flow = new PublishFlowControl(id, client, scheduled, options.getMaxInflight(), flow.getQueueCapacity()
+                    , Boolean.TRUE.equals(flow.getAdaptive()), flow.getTargetLatency(), flow.getMessagesPerSecond(), flow.getBytesPerSecond());
+        } else {
+            this.flow = null;
+        }
+        OfflineProperties offline = properties == null ? null : properties.getOffline();
+        if (offline != null && Boolean.TRUE.equals(offline.getEnabled())) {
+            this.offline = new OfflineBuffer(id, client, scheduled, offline.getDirectory(), offline.getMaxBytes()
+                    , offline.getSegmentBytes(), offline.getDropPolicy(), offline.getDrainRate());
+        } else {
+            this.offline = null;
+        }
     }
 
     private static final Logger log = LoggerFactory.getLogger(SimpleMqttClient.class);
+    private static final int DEFAULT_COMPRESS_MIN_SIZE = 512;
     private static final ScheduledExecutorService scheduled = Executors.newSingleThreadScheduledExecutor();
 
     public void connect() {
+        if (closed) {
+            return;
+        }
         try {
             adapter.beforeConnect(id, options);
+            client.setManualAcks(manualAcks);
             client.connect(options, null, new IMqttActionListener() {
                 @Override
                 public void onSuccess(IMqttToken asyncActionToken) {
                     log.info("connect success. client_id is [{}], brokers is [{}].", id, String.join(",", options.getServerURIs()));
                     subscribe();
+                    if (flow != null) {
+                        flow.resume();
+                    }
+                    if (offline != null) {
+                        offline.resume();
+                    }
                 }
 
                 @Override
                 public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                    if (closed) {
+                        return;
+                    }
                     log.error("connect failure. client_id is [{}], brokers is [{}]. retry after {} ms."
                             , id, String.join(",", options.getServerURIs()), options.getMaxReconnectDelay());
                     scheduled.schedule(() -> connect(), options.getMaxReconnectDelay(), TimeUnit.MILLISECONDS);
@@ -107,6 +333,12 @@ public class SimpleMqttClient {
                     if (reconnect) {
                         log.info("mqtt reconnection success.");
                         subscribe();
+                        if (flow != null) {
+                            flow.resume();
+                        }
+                        if (offline != null) {
+                            offline.resume();
+                        }
                     }
                 }
 
@@ -116,10 +348,39 @@ public class SimpleMqttClient {
                 }
 
                 @Override
-                public void messageArrived(String topic, MqttMessage message) {
-                    for (MqttSubscriber subscriber : subscribers) {
-                        subscriber.accept(id, topic, message);
+                public void messageArrived(String topic, MqttMessage message) throws InterruptedException {
+                    if (duplicates != null && duplicates.isDuplicate(topic, message)) {
+                        log.debug("mqtt client '{}' drop duplicate message {} from '{}'.", id, message.getId(), topic);
+                        if (manualAcks) {
+                            // 重复的消息也要确认, 否则 broker 会一直重发
+                            ack(message);
+                        }
+                        return;
+                    }
+                    // 在转换之前解压, 所有处理方法共用解压后的内容
+                    if (decompressTopics.length > 0 && isDecompressTopic(topic)) {
+                        byte[] payload = compressor.decompress(message.getPayload());
+                        if (payload != message.getPayload()) {
+                            message.setPayload(payload);
+                        }
+                    }
+                    if (!manualAcks) {
+                        for (TopicRouter.Route route : router.route(topic)) {
+                            route.subscriber().dispatch(route.match(), message, dispatcher);
+                        }
+                        return;
                     }
+                    if (unackedPermits != null) {
+                        // 达到上限时阻塞接收线程, 未确认的消息会让 broker 停止推送
+                        unackedPermits.acquire();
+                    }
+                    unacked.incrementAndGet();
+                    List<TopicRouter.Route> routes = router.route(topic);
+                    Acknowledgement ack = new Acknowledgement(message, routes.size() + 1);
+                    for (TopicRouter.Route route : routes) {
+                        route.subscriber().dispatch(route.match(), message, dispatcher, ack);
+                    }
+                    ack.run();
                 }
 
                 @Override
@@ -135,15 +396,12 @@ public class SimpleMqttClient {
      * 合并相似的主题(实际没啥用)
      * merge the same topic
      *
-     * @param clientId clientId
      * @return TopicPairs
      */
-    private Set<TopicPair> mergeTopics(String clientId, boolean enableShared) {
+    private Set<TopicPair> mergeTopics(boolean enableShared) {
         Set<TopicPair> topicPairs = new HashSet<>();
         for (MqttSubscriber subscriber : subscribers) {
-            if (subscriber.containsClientId(clientId)) {
-                topicPairs.addAll(subscriber.getTopics());
-            }
+            topicPairs.addAll(subscriber.getTopics());
         }
         if (topicPairs.isEmpty()) {
             return topicPairs;
@@ -179,7 +437,7 @@ public class SimpleMqttClient {
 
     private void subscribe() {
         try {
-            Set<TopicPair> topics = mergeTopics(id, enableShared);
+            Set<TopicPair> topics = new HashSet<>(this.topics);
             this.adapter.beforeSubscribe(id, topics);
 
             if (topics.isEmpty()) {
@@ -203,7 +461,20 @@ public class SimpleMqttClient {
         }
     }
 
+    /**
+     * 关闭客户端, 合并和排队中还没有发布的消息, 以及离线缓存中的消息的回调以失败结束
+     */
     public void close() {
+        closed = true;
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        if (conflator != null) {
+            conflator.close();
+        }
+        if (flow != null) {
+            flow.close();
+        }
         try (IMqttAsyncClient imac = client()) {
             if (imac.isConnected()) {
                 imac.disconnect();
@@ -211,8 +482,47 @@ public class SimpleMqttClient {
         } catch (MqttException e) {
             log.error("mqtt client '{}' disconnect error: {}", id, e.getMessage(), e);
         }
+        if (offline != null) {
+            offline.close();
+        }
+    }
+
+
+    private void ack(MqttMessage message) {
+        try {
+            client.messageArrivedComplete(message.getId(), message.getQos());
+        } catch (MqttException e) {
+            log.warn("mqtt client '{}' ack message {} failure: {}", id, message.getId(), e.getMessage());
+        }
     }
 
+    /**
+     * 所有处理方法都处理完后确认消息
+     */
+    private final class Acknowledgement implements Runnable {
+        private final MqttMessage message;
+        private final AtomicInteger pending;
+
+        private Acknowledgement(MqttMessage message, int pending) {
+            this.message = message;
+            this.pending = new AtomicInteger(pending);
+        }
+
+        @Override
+        public void run() {
+            if (pending.decrementAndGet() != 0) {
+                return;
+            }
+            try {
+                ack(message);
+            } finally {
+                unacked.decrementAndGet();
+                if (unackedPermits != null) {
+                    unackedPermits.release();
+                }
+            }
+        }
+    }
 
     public void send(String topic, Object payload) {
         send(topic, payload, qos(), false, null);
@@ -249,22 +559,147 @@ public class SimpleMqttClient {
      * @param payload  消息内容
      * @param qos      服务质量
      * @param retained 保留消息
-     * @param callback 消息发送完成后的回调
+     * @param callback 消息发送完成后的回调, 转换或发布失败时也会调用 onFailure, 此时 token 为 null
      * @throws IllegalArgumentException if topic is empty
      * @throws NullPointerException     if client not exists
      */
     public void send(String topic, Object payload, int qos, boolean retained, IMqttActionListener callback) {
         Assert.isTrue(topic != null && !topic.isEmpty(), "topic cannot be blank.");
-        byte[] bytes = MqttConversionService.getSharedInstance().toBytes(payload);
+        byte[] bytes = MqttConversionService.getSharedInstance().toBytes(payload, codec(topic));
         if (bytes == null) {
+            if (callback != null) {
+                callback.onFailure(null, new IllegalArgumentException("payload cannot convert to byte[]."));
+            }
+            return;
+        }
+        if (conflator != null && conflator.offer(topic, bytes, qos, retained, callback)) {
+            return;
+        }
+        publish(topic, bytes, qos, retained, callback);
+    }
+
+    private void publish(String topic, byte[] payload, int qos, boolean retained, IMqttActionListener callback) {
+        MqttMessage message = toMessage(compress(topic, payload), qos, retained);
+        if (offline != null && offline.offer(topic, message, callback)) {
+            return;
+        }
+        if (flow != null) {
+            flow.submit(topic, message, callback);
             return;
         }
-        MqttMessage message = toMessage(bytes, qos, retained);
         try {
             client.publish(topic, message, null, callback);
+        } catch (MqttException e) {
+            if (offline != null && e.getReasonCode() == MqttException.REASON_CODE_CLIENT_NOT_CONNECTED) {
+                // 刚断开连接
+                offline.append(topic, message, callback);
+                return;
+            }
+            log.error("message publish error: {}", e.getMessage(), e);
+            if (callback != null) {
+                callback.onFailure(null, e);
+            }
         } catch (Throwable throwable) {
             log.error("message publish error: {}", throwable.getMessage(), throwable);
+            if (callback != null) {
+                callback.onFailure(null, throwable);
+            }
+        }
+    }
+
+    public CompletableFuture<PublishResult> sendAsync(String topic, Object payload) {
+        return sendAsync(topic, payload, qos(), false);
+    }
+
+    public CompletableFuture<PublishResult> sendAsync(String topic, Object payload, boolean retained) {
+        return sendAsync(topic, payload, qos(), retained);
+    }
+
+    public CompletableFuture<PublishResult> sendAsync(String topic, Object payload, int qos) {
+        return sendAsync(topic, payload, qos, false);
+    }
+
+    /**
+     * 发送消息, QoS 1 收到 PUBACK, QoS 2 收到 PUBCOMP, QoS 0 写出后完成.
+     * <p>
+     * 不等待发送完成, 可以连续发送后一起等待; 大量发送时建议开启 mqtt.flow.enabled, 否则超过 max-inflight 的消息会失败.
+     *
+     * @param topic    主题
+     * @param payload  消息内容
+     * @param qos      服务质量
+     * @param retained 保留消息
+     * @return CompletableFuture, 转换, 发布失败或主题为空时异常完成
+     */
+    public CompletableFuture<PublishResult> sendAsync(String topic, Object payload, int qos, boolean retained) {
+        PublishFuture future = new PublishFuture(topic, qos, retained);
+        try {
+            send(topic, payload, qos, retained, future);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 连续发送多条消息, 所有消息都完成后完成.
+     *
+     * @param messages 消息, 按顺序发送
+     * @return CompletableFuture, 结果与消息的顺序一致, 有任意一条失败时异常完成(仍然会等待其他消息完成)
+     * @see #sendAsync(String, Object, int, boolean)
+     */
+    public CompletableFuture<List<PublishResult>> sendAll(Collection<PublishMessage> messages) {
+        List<CompletableFuture<PublishResult>> futures = new ArrayList<>(messages.size());
+        for (PublishMessage message : messages) {
+            int qos = message.getQos() == null ? qos() : message.getQos();
+            futures.add(sendAsync(message.getTopic(), message.getPayload(), qos, message.isRetained()));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    /**
+     * 按配置的规则选择发布使用的编码
+     *
+     * @param topic 主题
+     * @return PayloadCodec, 没有匹配的规则时返回 null, 使用默认的转换
+     */
+    private PayloadCodec codec(String topic) {
+        for (CodecProperties.Rule rule : codecRules) {
+            if (MqttTopic.isMatched(rule.getTopic(), topic)) {
+                PayloadCodec codec = MqttConversionService.getSharedInstance().getCodec(rule.getCodec());
+                if (codec == null && missingCodecs.add(rule.getCodec())) {
+                    log.warn("Payload codec '{}' not found, use default conversion.", rule.getCodec());
+                }
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按配置的规则压缩消息内容
+     *
+     * @param topic   主题
+     * @param payload 消息内容
+     * @return 压缩后的内容, 没有匹配的规则或不需要压缩时返回原始内容
+     */
+    private byte[] compress(String topic, byte[] payload) {
+        for (CompressionProperties.Rule rule : compressionRules) {
+            if (MqttTopic.isMatched(rule.getTopic(), topic)) {
+                int minSize = rule.getMinSize() == null ? DEFAULT_COMPRESS_MIN_SIZE : rule.getMinSize();
+                return compressor.compress(payload, rule.getAlgorithm(), minSize);
+            }
+        }
+        return payload;
+    }
+
+    private boolean isDecompressTopic(String topic) {
+        for (String filter : decompressTopics) {
+            if (MqttTopic.isMatched(filter, topic)) {
+                return true;
+            }
         }
+        return false;
     }
 
     private MqttMessage toMessage(byte[] payload, int qos, boolean retained) {
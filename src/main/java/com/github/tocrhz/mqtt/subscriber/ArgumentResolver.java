@@ -0,0 +1,303 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import com.github.tocrhz.mqtt.convert.MqttConversionService;
+import com.github.tocrhz.mqtt.convert.PayloadCodec;
+import com.github.tocrhz.mqtt.convert.PayloadView;
+import com.github.tocrhz.mqtt.exception.NullParameterException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.util.ClassUtils;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * 参数解析, 启动时根据 {@link ParameterModel} 确定好每个参数的取值方式, 收到消息时直接取值.
+ *
+ * @author tocrhz
+ */
+abstract class ArgumentResolver {
+    private final static Logger log = LoggerFactory.getLogger(ArgumentResolver.class);
+    private final static boolean JSON_PRESENT = ClassUtils.isPresent("com.fasterxml.jackson.core.JsonParser", ArgumentResolver.class.getClassLoader());
+
+    protected final ParameterModel parameter;
+
+    private ArgumentResolver(ParameterModel parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * 根据参数定义选择对应的解析方式
+     *
+     * @param parameter 参数定义
+     * @return ArgumentResolver
+     */
+    static ArgumentResolver of(ParameterModel parameter) {
+        Class<?> target = parameter.getType();
+        if (target == MqttMessage.class) {
+            return new MessageResolver(parameter);
+        } else if (isProjection(parameter)) {
+            return new ProjectionResolver(parameter, JsonProjection.of(Collections.singletonList(parameter), false), 0);
+        } else if (parameter.isPayload()) {
+            return new PayloadResolver(parameter, target);
+        } else if (parameter.getName() != null) {
+            return new NamedValueResolver(parameter);
+        } else if (target == String.class) {
+            return new TopicResolver(parameter);
+        } else if (target.getClassLoader() != null || isView(target)) {
+            return new PayloadResolver(parameter, target);
+        }
+        return new DefaultValueResolver(parameter);
+    }
+
+    /**
+     * 批量处理时, 根据 List 参数的元素类型选择每条消息的解析方式.
+     * <p>
+     * 元素类型为 MqttMessage 时取消息本身, 为 String 并且没有 {@link com.github.tocrhz.mqtt.annotation.Payload} 时取主题, 其他取消息内容.
+     *
+     * @param parameter 参数定义
+     * @return ArgumentResolver
+     */
+    static ArgumentResolver ofElement(ParameterModel parameter) {
+        Class<?> element = parameter.getElementType();
+        if (element == MqttMessage.class) {
+            return new MessageResolver(parameter);
+        } else if (isProjection(parameter)) {
+            return new ProjectionResolver(parameter, JsonProjection.of(Collections.singletonList(parameter), true), 0);
+        } else if (!parameter.isPayload() && element == String.class) {
+            return new TopicResolver(parameter);
+        }
+        return new PayloadResolver(parameter, element);
+    }
+
+    /**
+     * 处理方法的所有参数, 配置了 {@code @Payload(path)} 的参数共用一次 json 解析
+     *
+     * @param parameters 参数定义
+     * @return ArgumentResolver[]
+     */
+    static ArgumentResolver[] of(List<ParameterModel> parameters) {
+        return of(parameters.toArray(new ParameterModel[0]), false);
+    }
+
+    /**
+     * 批量处理时每条消息的解析方式, 只解析 List 参数, 其他为 null.
+     * 配置了 {@code @Payload(path)} 的参数共用一次 json 解析
+     *
+     * @param parameters 参数定义
+     * @return ArgumentResolver[]
+     */
+    static ArgumentResolver[] ofElements(ParameterModel[] parameters) {
+        return of(parameters, true);
+    }
+
+    private static ArgumentResolver[] of(ParameterModel[] parameters, boolean element) {
+        ArgumentResolver[] resolvers = new ArgumentResolver[parameters.length];
+        List<ParameterModel> projected = new ArrayList<>();
+        for (int i = 0; i < parameters.length; i++) {
+            ParameterModel parameter = parameters[i];
+            if (element && !parameter.isBatch()) {
+                continue;
+            }
+            if (JSON_PRESENT && parameter.getPath() != null && (element || parameter.getType() != MqttMessage.class)) {
+                projected.add(parameter);
+            } else {
+                resolvers[i] = element ? ofElement(parameter) : of(parameter);
+            }
+        }
+        if (!projected.isEmpty()) {
+            JsonProjection projection = JsonProjection.of(projected, element);
+            for (int i = 0; i < parameters.length; i++) {
+                int slot = projected.indexOf(parameters[i]);
+                if (slot >= 0) {
+                    resolvers[i] = new ProjectionResolver(parameters[i], projection, slot);
+                }
+            }
+        }
+        return resolvers;
+    }
+
+    private static boolean isProjection(ParameterModel parameter) {
+        if (parameter.getPath() == null) {
+            return false;
+        }
+        if (!JSON_PRESENT) {
+            log.warn("Payload path requires jackson-core, ignored: {}", String.join("/", parameter.getPath()));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 不复制数据的消息内容, 直接指向 MqttMessage 中的 byte[]
+     */
+    private static boolean isView(Class<?> target) {
+        return target == PayloadView.class || target == ByteBuffer.class || target == InputStream.class;
+    }
+
+    /**
+     * 原样取消息内容的类型, byte[] 或者视图, 不使用编码
+     */
+    static boolean isRaw(Class<?> target) {
+        return target == byte[].class || isView(target);
+    }
+
+    /**
+     * 取参数值, 为空时使用默认值
+     *
+     * @param match   主题匹配结果
+     * @param message 当前消息内容
+     * @return 参数值
+     * @throws NullParameterException 参数必填但是值为空
+     */
+    final Object resolve(TopicMatch match, MqttMessage message) {
+        Object value = doResolve(match, message);
+        if (value == null) {
+            if (parameter.isRequired()) {
+                throw new NullParameterException(parameter);
+            }
+            return parameter.getDefaultValue();
+        }
+        return value;
+    }
+
+    abstract Object doResolve(TopicMatch match, MqttMessage message);
+
+    private static final class MessageResolver extends ArgumentResolver {
+        private MessageResolver(ParameterModel parameter) {
+            super(parameter);
+        }
+
+        @Override
+        Object doResolve(TopicMatch match, MqttMessage message) {
+            return message;
+        }
+    }
+
+    private static final class PayloadResolver extends ArgumentResolver {
+        private final MqttConversionService.Conversion conversion;
+        private final LinkedList<Converter<Object, Object>> converters;
+        private final String codecName;
+        private final DecodeCache.Key key;
+        private volatile PayloadCodec codec;
+        private volatile boolean missing;
+
+        private PayloadResolver(ParameterModel parameter, Class<?> target) {
+            super(parameter);
+            this.conversion = new MqttConversionService.Conversion(target);
+            this.converters = parameter.getConverters();
+            this.codecName = isRaw(target) ? null : parameter.getCodec();
+            // ByteBuffer 和 InputStream 有读取位置, 不能在多个处理方法之间共用
+            boolean stateful = target == ByteBuffer.class || target == InputStream.class;
+            this.key = parameter.isShared() && !stateful ? DecodeCache.key(target, converters, codecName) : null;
+        }
+
+        @Override
+        Object doResolve(TopicMatch match, MqttMessage message) {
+            if (message == null) {
+                return null;
+            }
+            DecodeCache decoded = key == null || match == null ? null : match.decoded;
+            if (decoded != null) {
+                return decoded.get(key, () -> decode(message));
+            }
+            return decode(message);
+        }
+
+        private Object decode(MqttMessage message) {
+            PayloadCodec codec = codecName == null ? null : codec(MqttConversionService.getSharedInstance());
+            return conversion.fromBytes(message.getPayload(), converters, codec);
+        }
+
+        /**
+         * 编码在启动后才注册, 第一次使用时查找
+         */
+        private PayloadCodec codec(MqttConversionService service) {
+            PayloadCodec codec = this.codec;
+            if (codec == null) {
+                codec = service.getCodec(codecName);
+                if (codec == null) {
+                    if (!missing) {
+                        missing = true;
+                        log.warn("Payload codec '{}' not found, use default conversion.", codecName);
+                    }
+                    return null;
+                }
+                this.codec = codec;
+            }
+            return codec;
+        }
+    }
+
+    private static final class ProjectionResolver extends ArgumentResolver {
+        private final JsonProjection projection;
+        private final int slot;
+
+        private ProjectionResolver(ParameterModel parameter, JsonProjection projection, int slot) {
+            super(parameter);
+            this.projection = projection;
+            this.slot = slot;
+        }
+
+        @Override
+        Object doResolve(TopicMatch match, MqttMessage message) {
+            if (message == null) {
+                return null;
+            }
+            return projection.values(match, message.getPayload())[slot];
+        }
+    }
+
+    private static final class TopicResolver extends ArgumentResolver {
+        private TopicResolver(ParameterModel parameter) {
+            super(parameter);
+        }
+
+        @Override
+        Object doResolve(TopicMatch match, MqttMessage message) {
+            return match.topic();
+        }
+    }
+
+    private static final class NamedValueResolver extends ArgumentResolver {
+        private final String name;
+        private final Class<?> target;
+        private final MqttConversionService.Conversion conversion;
+
+        private NamedValueResolver(ParameterModel parameter) {
+            super(parameter);
+            this.name = parameter.getName();
+            this.target = parameter.getType();
+            this.conversion = new MqttConversionService.Conversion(target);
+        }
+
+        @Override
+        Object doResolve(TopicMatch match, MqttMessage message) {
+            String value = match.value(name);
+            if (value == null) {
+                return null;
+            }
+            if (target == String.class) {
+                return value;
+            }
+            return conversion.fromString(value);
+        }
+    }
+
+    private static final class DefaultValueResolver extends ArgumentResolver {
+        private DefaultValueResolver(ParameterModel parameter) {
+            super(parameter);
+        }
+
+        @Override
+        Object doResolve(TopicMatch match, MqttMessage message) {
+            return null;
+        }
+    }
+}
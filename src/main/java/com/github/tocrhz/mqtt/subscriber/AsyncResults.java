@@ -0,0 +1,92 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 处理方法的异步返回值.
+ * <p>
+ * 方法返回 {@link CompletionStage} 或 {@link Publisher}(如 Mono, Flux) 时, 不占用处理线程,
+ * 在异步结果完成后才回调, 配合手动确认消息时, 慢的处理方法会限制接收速度.
+ * <p>
+ * reactive-streams 为可选依赖, 只有在类路径中存在时才会处理 {@link Publisher}.
+ *
+ * @author tocrhz
+ */
+final class AsyncResults {
+    private final static Logger log = LoggerFactory.getLogger(AsyncResults.class);
+
+    private final static boolean PUBLISHER_PRESENT = ClassUtils.isPresent("org.reactivestreams.Publisher", AsyncResults.class.getClassLoader());
+
+    private AsyncResults() {
+    }
+
+    /**
+     * 异步结果完成后回调
+     *
+     * @param result 处理方法的返回值
+     * @param done   完成后的回调, 可以为 null
+     * @return 是否为异步结果, 不是时不会回调
+     */
+    static boolean whenDone(Object result, Runnable done) {
+        if (result instanceof CompletionStage) {
+            ((CompletionStage<?>) result).whenComplete((value, e) -> {
+                if (e != null) {
+                    log.error("message handler error: {}", e.getMessage(), e);
+                }
+                complete(done);
+            });
+            return true;
+        }
+        if (PUBLISHER_PRESENT && Streams.isPublisher(result)) {
+            Streams.subscribe(result, done);
+            return true;
+        }
+        return false;
+    }
+
+    private static void complete(Runnable done) {
+        if (done != null) {
+            done.run();
+        }
+    }
+
+    /**
+     * 只在 reactive-streams 存在时加载
+     */
+    private static final class Streams {
+        private static boolean isPublisher(Object result) {
+            return result instanceof Publisher;
+        }
+
+        private static void subscribe(Object result, Runnable done) {
+            ((Publisher<?>) result).subscribe(new Subscriber<Object>() {
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Object o) {
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    log.error("message handler error: {}", e.getMessage(), e);
+                    complete(done);
+                }
+
+                @Override
+                public void onComplete() {
+                    complete(done);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import com.github.tocrhz.mqtt.exception.NullParameterException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量处理消息.
+ * <p>
+ * 每条消息先按 List 参数的元素类型转换好, 攒够 batchSize 条或者第一条消息等待超过 batchTimeoutMs 时, 调用一次处理方法.
+ * 超时只在公共的定时线程中触发, 处理方法交给消息所在的处理线程池(订阅的或客户端的)调用,
+ * 没有处理线程池时交给公共的批量处理线程, 慢的处理方法不会推迟其他订阅的超时.
+ * <p>
+ * 非 List 参数没有对应的单条消息, 使用默认值.
+ * <p>
+ * 手动确认消息时, 一批消息在处理方法返回(或返回的异步结果完成)后才确认.
+ *
+ * @author tocrhz
+ */
+final class BatchCollector {
+    private final static Logger log = LoggerFactory.getLogger(BatchCollector.class);
+
+    private static volatile ScheduledExecutorService timer;
+    private static volatile ExecutorService worker;
+
+    private final IMessageHandler handler;
+    private final ParameterModel[] parameters;
+    private final ArgumentResolver[] resolvers;
+    private final int batchSize;
+    private final long timeoutMs;
+    private final String key;
+    private Batch current;
+
+    private BatchCollector(IMessageHandler handler, ParameterModel[] parameters, int batchSize, long timeoutMs) {
+        this.handler = handler;
+        this.parameters = parameters;
+        this.batchSize = batchSize;
+        this.timeoutMs = timeoutMs;
+        this.key = "batch@" + Integer.toHexString(System.identityHashCode(this));
+        this.resolvers = ArgumentResolver.ofElements(parameters);
+    }
+
+    /**
+     * 创建批量处理
+     *
+     * @param subscribe  订阅模型
+     * @param parameters 处理方法的参数
+     * @param handler    消息处理方法
+     * @return BatchCollector, 没有配置 batchSize 或者没有 List 参数时返回 null
+     */
+    static BatchCollector of(SubscriberModel subscribe, List<ParameterModel> parameters, IMessageHandler handler) {
+        if (subscribe.batchSize() <= 0) {
+            return null;
+        }
+        if (parameters.stream().noneMatch(ParameterModel::isBatch)) {
+            log.warn("batchSize is set but no List parameter found, batch disabled: {}", String.join(",", subscribe.value()));
+            return null;
+        }
+        if (parameters.stream().anyMatch(p -> !p.isBatch())) {
+            log.warn("Only List parameters are filled in batch handler, others use default value: {}", String.join(",", subscribe.value()));
+        }
+        return new BatchCollector(handler, parameters.toArray(new ParameterModel[0]), subscribe.batchSize(), subscribe.batchTimeoutMs());
+    }
+
+    /**
+     * 添加一条消息, 攒够数量时在当前线程中调用处理方法
+     *
+     * @param match   主题匹配结果
+     * @param message    当前消息内容
+     * @param dispatcher 消息所在的处理线程池, 超时时在这里调用处理方法, 可以为 null
+     * @param done       这一批处理完成后的回调, 消息被跳过时立即回调, 可以为 null
+     */
+    void add(TopicMatch match, MqttMessage message, MessageDispatcher dispatcher, Runnable done) {
+        Object[] values = new Object[resolvers.length];
+        try {
+            for (int i = 0; i < resolvers.length; i++) {
+                if (resolvers[i] != null) {
+                    values[i] = resolvers[i].resolve(match, message);
+                }
+            }
+        } catch (NullParameterException e) {
+            log.debug("message params error: {}", e.getMessage());
+            complete(done);
+            return;
+        } catch (Exception e) {
+            log.error("message convert error: {}", e.getMessage(), e);
+            complete(done);
+            return;
+        }
+        Batch full = null;
+        synchronized (this) {
+            Batch batch = current;
+            if (batch == null) {
+                batch = current = new Batch(resolvers.length, dispatcher);
+                if (timeoutMs > 0) {
+                    Batch timeout = batch;
+                    batch.timeout = timer().schedule(() -> expire(timeout), timeoutMs, TimeUnit.MILLISECONDS);
+                }
+            }
+            batch.add(values, message, done);
+            if (batch.messages.size() >= batchSize) {
+                current = null;
+                full = batch;
+            }
+        }
+        if (full != null) {
+            if (full.timeout != null) {
+                full.timeout.cancel(false);
+            }
+            invoke(full);
+        }
+    }
+
+    private void expire(Batch batch) {
+        synchronized (this) {
+            if (current != batch) {
+                return;
+            }
+            current = null;
+        }
+        DispatchTask task = new DispatchTask() {
+            @Override
+            public void run() {
+                invoke(batch);
+            }
+
+            @Override
+            public void dropped() {
+                log.warn("batch handler task dropped, {} messages skipped.", batch.messages.size());
+                batch.done.forEach(BatchCollector::complete);
+            }
+        };
+        try {
+            if (batch.dispatcher != null) {
+                // 有序模式下同一个订阅的批次在同一个通道中按顺序处理
+                batch.dispatcher.dispatch(key, task);
+            } else {
+                worker().execute(task);
+            }
+        } catch (RuntimeException e) {
+            log.error("batch handler dispatch error: {}", e.getMessage(), e);
+            task.dropped();
+        }
+    }
+
+    private void invoke(Batch batch) {
+        Object[] args = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            List<Object> list = batch.lists.get(i);
+            args[i] = list != null ? list : parameters[i].getDefaultValue();
+        }
+        Runnable done = () -> batch.done.forEach(BatchCollector::complete);
+        boolean async = false;
+        try {
+            async = AsyncResults.whenDone(handler.handle(args), done);
+        } catch (Exception e) {
+            log.error("message handler error: {}", e.getMessage(), e);
+        } finally {
+            if (!async) {
+                done.run();
+            }
+        }
+    }
+
+    private static void complete(Runnable done) {
+        if (done != null) {
+            done.run();
+        }
+    }
+
+    /**
+     * 处理剩余的消息
+     */
+    void close() {
+        Batch batch;
+        synchronized (this) {
+            batch = current;
+            current = null;
+        }
+        if (batch != null) {
+            if (batch.timeout != null) {
+                batch.timeout.cancel(false);
+            }
+            invoke(batch);
+        }
+    }
+
+    private static ScheduledExecutorService timer() {
+        if (timer == null) {
+            synchronized (BatchCollector.class) {
+                if (timer == null) {
+                    timer = Executors.newSingleThreadScheduledExecutor(task -> {
+                        Thread thread = new Thread(task, "mqtt-batch-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return timer;
+    }
+
+    private static ExecutorService worker() {
+        if (worker == null) {
+            synchronized (BatchCollector.class) {
+                if (worker == null) {
+                    worker = Executors.newCachedThreadPool(MessageDispatcher.threadFactory("batch"));
+                }
+            }
+        }
+        return worker;
+    }
+
+    private final class Batch {
+        private final List<List<Object>> lists;
+        private final ArrayList<MqttMessage> messages = new ArrayList<>(batchSize);
+        private final ArrayList<Runnable> done = new ArrayList<>(batchSize);
+        private final MessageDispatcher dispatcher;
+        private ScheduledFuture<?> timeout;
+
+        private Batch(int size, MessageDispatcher dispatcher) {
+            this.dispatcher = dispatcher;
+            lists = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                lists.add(resolvers[i] != null ? new ArrayList<>(batchSize) : null);
+            }
+        }
+
+        private void add(Object[] values, MqttMessage message, Runnable done) {
+            for (int i = 0; i < lists.size(); i++) {
+                List<Object> list = lists.get(i);
+                if (list != null) {
+                    list.add(values[i]);
+                }
+            }
+            messages.add(message);
+            this.done.add(done);
+        }
+    }
+}
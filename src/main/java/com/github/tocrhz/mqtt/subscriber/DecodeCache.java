@@ -0,0 +1,95 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import org.springframework.core.convert.converter.Converter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 同一条消息匹配多个订阅方法时, 按 (目标类型, 转换方法, 编码) 缓存转换后的消息内容, 每种类型只转换一次.
+ * <p>
+ * 只在一条消息匹配多个订阅方法时创建, 随消息一起释放.
+ * 处理方法会修改参数对象时, 可以用 {@code @Payload(shared = false)} 关闭共享.
+ *
+ * @author tocrhz
+ */
+final class DecodeCache {
+    private final static ConcurrentHashMap<Key, Key> KEYS = new ConcurrentHashMap<>();
+
+    private Key[] keys = new Key[2];
+    private Object[] values = new Object[2];
+    private int size;
+
+    /**
+     * 取缓存的 key, 相同的类型和转换方法返回同一个对象, 查找时直接比较引用
+     *
+     * @param target     目标类型
+     * @param converters 注解中配置的转换方法
+     * @param codec      使用的编码名称, 可以为 null
+     * @return Key
+     */
+    static Key key(Class<?> target, List<Converter<Object, Object>> converters, String codec) {
+        Class<?>[] classes = converters == null ? new Class<?>[0]
+                : converters.stream().map(Object::getClass).toArray(Class<?>[]::new);
+        Key key = new Key(target, classes, codec);
+        Key exists = KEYS.putIfAbsent(key, key);
+        return exists == null ? key : exists;
+    }
+
+    /**
+     * 取转换后的内容, 没有时转换并缓存, 同一条消息的多个处理线程只有一个在转换
+     *
+     * @param key      缓存的 key
+     * @param resolver 转换方法
+     * @return 转换后的内容
+     */
+    synchronized Object get(Key key, Supplier<Object> resolver) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        Object value = resolver.get();
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size++] = value;
+        return value;
+    }
+
+    static final class Key {
+        private final Class<?> target;
+        private final Class<?>[] converters;
+        private final String codec;
+        private final int hash;
+
+        private Key(Class<?> target, Class<?>[] converters, String codec) {
+            this.target = target;
+            this.converters = converters;
+            this.codec = codec;
+            this.hash = 31 * (31 * target.hashCode() + Arrays.hashCode(converters)) + Objects.hashCode(codec);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return target == key.target && Arrays.equals(converters, key.converters) && Objects.equals(codec, key.codec);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+/**
+ * 判断重复消息的方式.
+ *
+ * @author tocrhz
+ */
+public enum DedupMode {
+    /**
+     * 按主题, 消息ID和消息内容的 hash 判断, 只过滤 QoS 1/2 并且 broker 标记为重发(DUP)的消息.
+     */
+    MESSAGE_ID,
+    /**
+     * 按主题和消息内容的 hash 判断, 有效期内内容相同的消息都会被过滤.
+     */
+    PAYLOAD
+}
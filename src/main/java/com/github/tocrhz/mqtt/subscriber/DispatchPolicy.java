@@ -0,0 +1,21 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+/**
+ * 异步处理消息时, 队列已满的处理方式.
+ *
+ * @author tocrhz
+ */
+public enum DispatchPolicy {
+    /**
+     * 阻塞接收线程, 直到队列有空位, 会反压到 Broker.
+     */
+    BLOCK,
+    /**
+     * 在接收线程中直接处理.
+     */
+    CALLER_RUNS,
+    /**
+     * 丢弃当前消息.
+     */
+    DROP
+}
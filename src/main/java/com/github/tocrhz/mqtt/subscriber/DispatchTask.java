@@ -0,0 +1,14 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+/**
+ * 消息处理任务, 被丢弃时会收到通知, 用来释放消息占用的资源(如未确认的消息数).
+ *
+ * @author tocrhz
+ */
+interface DispatchTask extends Runnable {
+
+    /**
+     * 任务没有执行就被丢弃了
+     */
+    void dropped();
+}
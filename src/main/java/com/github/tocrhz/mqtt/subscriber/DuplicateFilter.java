@@ -0,0 +1,161 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 过滤重复的消息, 用于 broker 故障转移时 QoS 1 消息的重复投递.
+ * <p>
+ * 每条消息计算一个 long 型的 key, 存在固定大小的开放寻址表中, 超过有效期的记录视为不存在.
+ * 每个 key 只在附近的几个位置中查找, 表满时覆盖其中最早过期的记录, 所以内存固定为 maxEntries * 16 字节, 查找时不分配对象.
+ * <p>
+ * 在消息转换之前判断, 重复的消息不会转换也不会分发给处理方法. 只在客户端的接收线程中使用, 不是线程安全的.
+ *
+ * @author tocrhz
+ */
+public final class DuplicateFilter {
+    private final static int PROBES = 8;
+
+    private final DedupMode mode;
+    private final long ttlNanos;
+    private final long[] keys;
+    private final long[] expires;
+    private final int mask;
+    private volatile long hits;
+    private volatile long misses;
+
+    /**
+     * 创建重复消息过滤
+     *
+     * @param mode       判断重复的方式
+     * @param maxEntries 最多记录的消息数量, 向上取整为 2 的幂
+     * @param ttlSeconds 记录的有效期(秒)
+     */
+    public DuplicateFilter(DedupMode mode, int maxEntries, int ttlSeconds) {
+        int size = Integer.highestOneBit(Math.max(PROBES, maxEntries) - 1) << 1;
+        this.mode = mode == null ? DedupMode.MESSAGE_ID : mode;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSeconds));
+        this.keys = new long[size];
+        this.expires = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * 判断消息是否重复, 不重复时记录下来
+     *
+     * @param topic   当前消息的主题
+     * @param message 当前消息内容
+     * @return 是否重复
+     */
+    public boolean isDuplicate(String topic, MqttMessage message) {
+        long key;
+        if (mode == DedupMode.PAYLOAD) {
+            key = mix(topic.hashCode(), hash(message.getPayload()));
+        } else {
+            if (message.getQos() == 0) {
+                // QoS 0 没有消息ID
+                return false;
+            }
+            // 消息ID会被 broker 立即重复使用, 加上内容的 hash, 重发的消息不会和另一条使用相同ID的消息混淆
+            key = mix(topic.hashCode(), hash(message.getPayload()) * 31 + message.getId());
+        }
+        boolean duplicate = check(key == 0 ? 1 : key, System.nanoTime());
+        if (duplicate && mode == DedupMode.MESSAGE_ID && !message.isDuplicate()) {
+            // 消息ID会被重复使用, 只有 broker 标记为重发的消息才算重复
+            duplicate = false;
+        }
+        if (duplicate) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return duplicate;
+    }
+
+    private boolean check(long key, long now) {
+        int index = (int) (key ^ (key >>> 32)) & mask;
+        int victim = -1;
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (index + i) & mask;
+            long expire = expires[slot];
+            boolean alive = keys[slot] != 0 && expire - now > 0;
+            if (alive && keys[slot] == key) {
+                if (mode == DedupMode.MESSAGE_ID) {
+                    expires[slot] = now + ttlNanos;
+                }
+                return true;
+            }
+            if (!alive) {
+                if (oldest != Long.MIN_VALUE) {
+                    victim = slot;
+                    oldest = Long.MIN_VALUE;
+                }
+            } else if (expire - now < oldest) {
+                victim = slot;
+                oldest = expire - now;
+            }
+        }
+        keys[victim] = key;
+        expires[victim] = now + ttlNanos;
+        return false;
+    }
+
+    // FNV-1a 64
+    private static long hash(byte[] payload) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : payload) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // murmur3 fmix64
+    private static long mix(int topicHash, long value) {
+        long h = (topicHash * 0x9e3779b97f4a7c15L) ^ value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 判断重复的方式
+     *
+     * @return DedupMode
+     */
+    public DedupMode mode() {
+        return mode;
+    }
+
+    /**
+     * 最多记录的消息数量
+     *
+     * @return int
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * 判断为重复的消息数量
+     *
+     * @return long
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * 判断为不重复的消息数量
+     *
+     * @return long
+     */
+    public long misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import com.github.tocrhz.mqtt.exception.NullParameterException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 流式处理消息, 处理方法的参数为 {@code Flux<T>}.
+ * <p>
+ * 启动时调用一次处理方法, 传入一个 Flux, 之后每条消息转换后放入这个 Flux.
+ * 消息先进入长度为 queueCapacity 的缓冲区, 只有下游请求(request)时才会取出, 缓冲区满时按 rejectedPolicy 阻塞接收线程或丢弃,
+ * 所以慢的下游会限制接收速度. 没有订阅 Flux 时直接丢弃; 阻塞最多等待 {@value #BLOCK_TIMEOUT_SECONDS} 秒,
+ * 下游一直不请求时丢弃当前消息, 不会一直占住接收线程.
+ * <p>
+ * 下游什么时候处理完一条消息是不知道的, 所以不支持手动确认消息, 开启 manual-acks 的客户端启动时报错.
+ * <p>
+ * 处理方法返回 {@code Publisher} 时由框架订阅, 否则需要在方法中自己订阅.
+ * reactor 为可选依赖, 只有参数中有 Flux 时才会加载这个类.
+ *
+ * @author tocrhz
+ */
+final class FluxBridge {
+    private final static Logger log = LoggerFactory.getLogger(FluxBridge.class);
+    private final static long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private final static long BLOCK_TIMEOUT_SECONDS = 10;
+
+    private final IMessageHandler handler;
+    private final ParameterModel[] parameters;
+    private final ArgumentResolver resolver;
+    private final boolean drop;
+    private final Sinks.Many<Element> sink;
+    private volatile boolean started;
+    private volatile boolean closed;
+
+    private FluxBridge(IMessageHandler handler, ParameterModel[] parameters, ParameterModel flux, int capacity, boolean drop) {
+        this.handler = handler;
+        this.parameters = parameters;
+        this.resolver = ArgumentResolver.ofElement(flux);
+        this.drop = drop;
+        this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<Element>get(Math.max(1, capacity)).get());
+    }
+
+    /**
+     * 创建流式处理
+     *
+     * @param subscribe  订阅模型
+     * @param parameters 处理方法的参数
+     * @param handler    消息处理方法
+     * @return FluxBridge
+     */
+    static FluxBridge of(SubscriberModel subscribe, List<ParameterModel> parameters, IMessageHandler handler) {
+        ParameterModel flux = parameters.stream().filter(ParameterModel::isFlux).findFirst().orElse(null);
+        if (flux == null) {
+            return null;
+        }
+        if (parameters.size() > 1) {
+            log.warn("Only Flux parameter is filled in stream handler, others use default value: {}", String.join(",", subscribe.value()));
+        }
+        return new FluxBridge(handler, parameters.toArray(new ParameterModel[0]), flux,
+                subscribe.queueCapacity(), subscribe.rejectedPolicy() == DispatchPolicy.DROP);
+    }
+
+    /**
+     * 调用处理方法, 只调用一次
+     */
+    synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        Flux<Object> flux = sink.asFlux().map(Element::deliver);
+        Object[] args = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            args[i] = parameters[i].isFlux() ? flux : parameters[i].getDefaultValue();
+        }
+        try {
+            AsyncResults.whenDone(handler.handle(args), null);
+        } catch (Exception e) {
+            log.error("message handler error: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 添加一条消息, 缓冲区满时按配置阻塞或丢弃
+     *
+     * @param match   主题匹配结果
+     * @param message 当前消息内容
+     * @param done    消息被下游取走后的回调, 消息被跳过或丢弃时立即回调, 可以为 null
+     */
+    void add(TopicMatch match, MqttMessage message, Runnable done) {
+        Object value;
+        try {
+            value = resolver.resolve(match, message);
+        } catch (NullParameterException e) {
+            log.debug("message params error: {}", e.getMessage());
+            complete(done);
+            return;
+        } catch (Exception e) {
+            log.error("message convert error: {}", e.getMessage(), e);
+            complete(done);
+            return;
+        }
+        if (value == null) {
+            // Flux 中不能有 null
+            complete(done);
+            return;
+        }
+        Element element = new Element(value, done);
+        long deadline = 0;
+        synchronized (this) {
+            while (true) {
+                Sinks.EmitResult result = sink.tryEmitNext(element);
+                if (result.isSuccess()) {
+                    return;
+                }
+                if (result != Sinks.EmitResult.FAIL_OVERFLOW || drop) {
+                    log.debug("message dropped: {}", result);
+                    complete(done);
+                    return;
+                }
+                if (deadline == 0) {
+                    deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(BLOCK_TIMEOUT_SECONDS);
+                } else if (System.nanoTime() - deadline > 0) {
+                    // 下游一直不请求时不再等待, 否则会阻塞客户端所有的订阅
+                    log.warn("Flux of stream handler is not requesting for {}s, message dropped.", BLOCK_TIMEOUT_SECONDS);
+                    complete(done);
+                    return;
+                }
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                if (closed || Thread.currentThread().isInterrupted()) {
+                    complete(done);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 结束 Flux
+     */
+    void close() {
+        closed = true;
+        synchronized (this) {
+            sink.tryEmitComplete();
+        }
+    }
+
+    private static void complete(Runnable done) {
+        if (done != null) {
+            done.run();
+        }
+    }
+
+    private static final class Element {
+        private final Object value;
+        private final Runnable done;
+
+        private Element(Object value, Runnable done) {
+            this.value = value;
+            this.done = done;
+        }
+
+        private Object deliver() {
+            complete(done);
+            return value;
+        }
+    }
+}
@@ -12,4 +12,19 @@ public interface IMessageHandler {
      * @throws Exception 可能的异常
      */
     void receive(Object[] parameters) throws Exception;
+
+    /**
+     * 处理方法, 返回方法的返回值.
+     * <p>
+     * 返回 {@link java.util.concurrent.CompletionStage} 或 {@code org.reactivestreams.Publisher} 时,
+     * 在异步结果完成后才算处理完成.
+     *
+     * @param parameters 参数表
+     * @return 方法的返回值, 默认为 null
+     * @throws Exception 可能的异常
+     */
+    default Object handle(Object[] parameters) throws Exception {
+        receive(parameters);
+        return null;
+    }
 }
@@ -0,0 +1,244 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.tocrhz.mqtt.convert.MqttConversionService;
+import com.github.tocrhz.mqtt.convert.PayloadView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 按 {@code @Payload(path)} 从 json 中取值, 一个处理方法的所有 path 参数共用一次解析.
+ * <p>
+ * 启动时把所有路径合并成一棵树, 解析时只进入树中有的字段和下标, 其他的直接跳过, 所有路径都找到后不再继续解析.
+ * 数字, 布尔值直接从解析器中取, 对象和数组不复制, 直接按原始内容的那一段转换.
+ * <p>
+ * jackson-core 为可选依赖, 只有参数中配置了 path 时才会加载这个类.
+ *
+ * @author tocrhz
+ */
+final class JsonProjection {
+    private final static Logger log = LoggerFactory.getLogger(JsonProjection.class);
+    private final static JsonFactory FACTORY = new JsonFactory();
+
+    private final Node root = new Node();
+    private final Class<?>[] targets;
+    private final MqttConversionService.Conversion[] conversions;
+
+    private JsonProjection(int size) {
+        this.targets = new Class<?>[size];
+        this.conversions = new MqttConversionService.Conversion[size];
+    }
+
+    /**
+     * 合并参数中的路径
+     *
+     * @param parameters 配置了 path 的参数
+     * @param element    是否取 List 或 Flux 参数的元素类型
+     * @return JsonProjection, 取值时按参数的顺序返回
+     */
+    static JsonProjection of(List<ParameterModel> parameters, boolean element) {
+        JsonProjection projection = new JsonProjection(parameters.size());
+        for (int i = 0; i < parameters.size(); i++) {
+            ParameterModel parameter = parameters.get(i);
+            projection.targets[i] = element ? parameter.getElementType() : parameter.getType();
+            projection.conversions[i] = new MqttConversionService.Conversion(projection.targets[i]);
+            Node node = projection.root;
+            for (String segment : parameter.getPath()) {
+                node = node.child(segment);
+            }
+            node.addSlot(i);
+        }
+        return projection;
+    }
+
+    /**
+     * 取当前消息中所有路径的值, 同一个匹配结果只解析一次
+     *
+     * @param match   主题匹配结果
+     * @param payload 消息内容
+     * @return 按参数顺序的值, 不存在或转换失败时为 null
+     */
+    Object[] values(TopicMatch match, byte[] payload) {
+        if (match == null) {
+            return extract(payload);
+        }
+        if (match.projection != this) {
+            match.projected = extract(payload);
+            match.projection = this;
+        }
+        return match.projected;
+    }
+
+    private Object[] extract(byte[] payload) {
+        Object[] values = new Object[targets.length];
+        try (JsonParser parser = FACTORY.createParser(payload)) {
+            if (parser.nextToken() != null) {
+                walk(parser, payload, root, values, targets.length, true);
+            }
+        } catch (IOException e) {
+            log.warn("message json path error: {}", e.getMessage());
+        }
+        return values;
+    }
+
+    /**
+     * 解析当前的值, 解析器位于这个值的第一个 token
+     *
+     * @return 剩余没有找到的数量
+     */
+    private int walk(JsonParser parser, byte[] payload, Node node, Object[] values, int remaining, boolean stop) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (node.slots == null) {
+            if (token.isStructStart()) {
+                return children(parser, payload, node, values, remaining, stop);
+            }
+            return remaining;
+        }
+        if (token.isStructStart()) {
+            int start = (int) parser.currentTokenLocation().getByteOffset();
+            if (node.children == null && node.items == null) {
+                parser.skipChildren();
+            } else {
+                // 下级也有需要的值时不能提前结束, 否则取不到这一段的结尾
+                remaining = children(parser, payload, node, values, remaining, false);
+            }
+            int end = (int) parser.currentLocation().getByteOffset();
+            PayloadView view = PayloadView.of(payload, start, end - start);
+            for (int slot : node.slots) {
+                values[slot] = container(view, targets[slot], conversions[slot]);
+            }
+        } else {
+            for (int slot : node.slots) {
+                values[slot] = scalar(parser, token, targets[slot], conversions[slot]);
+            }
+        }
+        return remaining - node.slots.length;
+    }
+
+    private int children(JsonParser parser, byte[] payload, Node node, Object[] values, int remaining, boolean stop) throws IOException {
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.children == null ? null : node.children.get(parser.currentName());
+                parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                } else {
+                    remaining = walk(parser, payload, child, values, remaining, stop);
+                    if (stop && remaining <= 0) {
+                        return 0;
+                    }
+                }
+            }
+        } else {
+            int index = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                Node child = node.items == null || index >= node.items.length ? null : node.items[index];
+                index++;
+                if (child == null) {
+                    parser.skipChildren();
+                } else {
+                    remaining = walk(parser, payload, child, values, remaining, stop);
+                    if (stop && remaining <= 0) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return remaining;
+    }
+
+    private static Object scalar(JsonParser parser, JsonToken token, Class<?> target, MqttConversionService.Conversion conversion) {
+        try {
+            if (token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (target == String.class) {
+                return parser.getText();
+            }
+            if (token.isNumeric()) {
+                if (target == double.class || target == Double.class) {
+                    return parser.getDoubleValue();
+                } else if (target == int.class || target == Integer.class) {
+                    return parser.getIntValue();
+                } else if (target == long.class || target == Long.class) {
+                    return parser.getLongValue();
+                } else if (target == float.class || target == Float.class) {
+                    return parser.getFloatValue();
+                } else if (target == short.class || target == Short.class) {
+                    return parser.getShortValue();
+                } else if (target == BigDecimal.class) {
+                    return parser.getDecimalValue();
+                } else if (target == BigInteger.class) {
+                    return parser.getBigIntegerValue();
+                }
+            } else if (token.isBoolean() && (target == boolean.class || target == Boolean.class)) {
+                return token == JsonToken.VALUE_TRUE;
+            }
+            return conversion.fromString(parser.getText());
+        } catch (IOException | RuntimeException e) {
+            log.warn("message json path convert to {} error: {}", target.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static Object container(PayloadView view, Class<?> target, MqttConversionService.Conversion conversion) {
+        if (target == String.class) {
+            return view.toString(StandardCharsets.UTF_8);
+        }
+        return conversion.fromView(view);
+    }
+
+    private static final class Node {
+        private HashMap<String, Node> children;
+        // 数字的路径也可能是数组下标
+        private Node[] items;
+        private int[] slots;
+
+        private Node child(String segment) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            Node child = children.computeIfAbsent(segment, key -> new Node());
+            int index = index(segment);
+            if (index >= 0) {
+                if (items == null || items.length <= index) {
+                    items = items == null ? new Node[index + 1] : Arrays.copyOf(items, index + 1);
+                }
+                items[index] = child;
+            }
+            return child;
+        }
+
+        private void addSlot(int slot) {
+            if (slots == null) {
+                slots = new int[]{slot};
+            } else {
+                slots = Arrays.copyOf(slots, slots.length + 1);
+                slots[slots.length - 1] = slot;
+            }
+        }
+
+        private static int index(String segment) {
+            if (segment.isEmpty() || segment.length() > 4 || (segment.length() > 1 && segment.charAt(0) == '0')) {
+                return -1;
+            }
+            for (int i = 0; i < segment.length(); i++) {
+                if (segment.charAt(i) < '0' || segment.charAt(i) > '9') {
+                    return -1;
+                }
+            }
+            return Integer.parseInt(segment);
+        }
+    }
+}
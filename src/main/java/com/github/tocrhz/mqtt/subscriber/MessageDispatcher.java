@@ -0,0 +1,201 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步处理消息, 把消息处理方法从 Paho 的接收线程中分离出来.
+ * <p>
+ * 使用有界队列, 队列已满时按 {@link DispatchPolicy} 处理.
+ * 有序模式下, 相同 key 的消息总是由同一个线程按顺序处理, 不同 key 之间并行.
+ *
+ * @author tocrhz
+ */
+public abstract class MessageDispatcher {
+    private final static Logger log = LoggerFactory.getLogger(MessageDispatcher.class);
+
+    protected final String name;
+    protected final int queueCapacity;
+    protected final DispatchPolicy policy;
+    protected final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * 创建消息处理线程池
+     *
+     * @param name          名称, 用于线程名
+     * @param threads       线程数, 小于等于 0 时返回 null, 表示直接处理
+     * @param queueCapacity 队列长度
+     * @param policy        队列已满时的处理方式
+     * @return MessageDispatcher
+     */
+    public static MessageDispatcher of(String name, int threads, int queueCapacity, DispatchPolicy policy) {
+        return of(name, threads, queueCapacity, policy, false);
+    }
+
+    /**
+     * 创建消息处理线程池
+     *
+     * @param name          名称, 用于线程名
+     * @param threads       线程数, 有序模式下为通道数, 小于等于 0 时返回 null, 表示直接处理
+     * @param queueCapacity 队列长度, 有序模式下为每个通道的队列长度
+     * @param policy        队列已满时的处理方式
+     * @param ordered       是否按 key 有序处理
+     * @return MessageDispatcher
+     */
+    public static MessageDispatcher of(String name, int threads, int queueCapacity, DispatchPolicy policy, boolean ordered) {
+        return of(name, threads, queueCapacity, policy, ordered, false);
+    }
+
+    /**
+     * 创建消息处理线程池
+     *
+     * @param name          名称, 用于线程名
+     * @param threads       线程数, 有序模式下为通道数, 虚拟线程模式下为同时处理的消息数量上限, 小于等于 0 时返回 null, 表示直接处理
+     * @param queueCapacity 队列长度, 有序模式下为每个通道的队列长度, 虚拟线程非有序模式下不使用
+     * @param policy        队列已满时的处理方式
+     * @param ordered       是否按 key 有序处理
+     * @param virtual       是否使用虚拟线程, 需要 Java 21 及以上, 不支持时使用平台线程
+     * @return MessageDispatcher
+     */
+    public static MessageDispatcher of(String name, int threads, int queueCapacity, DispatchPolicy policy, boolean ordered, boolean virtual) {
+        if (threads <= 0) {
+            return null;
+        }
+        queueCapacity = Math.max(1, queueCapacity);
+        policy = policy == null ? DispatchPolicy.BLOCK : policy;
+        ThreadFactory factory = null;
+        if (virtual) {
+            factory = VirtualThreads.factory(name);
+            if (factory == null) {
+                log.warn("mqtt dispatcher '{}': virtual threads require Java 21+, fallback to platform threads.", name);
+            }
+        }
+        if (ordered) {
+            return new OrderedDispatcher(name, threads, queueCapacity, policy, factory == null ? threadFactory(name) : factory);
+        }
+        if (factory != null) {
+            return new VirtualDispatcher(name, threads, policy, factory);
+        }
+        return new PooledDispatcher(name, threads, queueCapacity, policy);
+    }
+
+    protected MessageDispatcher(String name, int queueCapacity, DispatchPolicy policy) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.policy = policy;
+    }
+
+    /**
+     * 提交处理任务
+     *
+     * @param task 消息处理任务
+     */
+    public void dispatch(Runnable task) {
+        dispatch(null, task);
+    }
+
+    /**
+     * 提交处理任务
+     *
+     * @param key  有序模式下, 相同 key 的任务按提交顺序处理; 非有序模式忽略
+     * @param task 消息处理任务
+     */
+    public abstract void dispatch(String key, Runnable task);
+
+    /**
+     * 是否按 key 有序处理
+     *
+     * @return boolean
+     */
+    public abstract boolean ordered();
+
+    /**
+     * 名称
+     *
+     * @return String
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * 当前等待处理的消息数量
+     *
+     * @return int
+     */
+    public abstract int queueSize();
+
+    /**
+     * 队列长度
+     *
+     * @return int
+     */
+    public int queueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * 正在处理消息的线程数
+     *
+     * @return int
+     */
+    public abstract int activeCount();
+
+    /**
+     * 通道数量, 非有序模式为 1
+     *
+     * @return int
+     */
+    public int lanes() {
+        return 1;
+    }
+
+    /**
+     * 指定通道等待处理的消息数量, 用于观察 key 分布是否倾斜
+     *
+     * @param lane 通道
+     * @return int
+     */
+    public int laneSize(int lane) {
+        return queueSize();
+    }
+
+    /**
+     * 队列已满被丢弃的消息数量
+     *
+     * @return long
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * 关闭, 已经在队列中的消息会处理完
+     */
+    public abstract void shutdown();
+
+    /**
+     * 丢弃任务, 计数并通知任务
+     *
+     * @param task 被丢弃的任务
+     */
+    protected void drop(Runnable task) {
+        dropped.incrementAndGet();
+        if (task instanceof DispatchTask) {
+            ((DispatchTask) task).dropped();
+        }
+    }
+
+    protected static ThreadFactory threadFactory(String name) {
+        AtomicInteger index = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "mqtt-" + name + "-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
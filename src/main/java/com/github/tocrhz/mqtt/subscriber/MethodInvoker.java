@@ -0,0 +1,316 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 调用消息处理方法.
+ * <p>
+ * 公开的方法在启动时用 {@link LambdaMetafactory} 生成按参数个数区分的函数接口的实现, 生成的类中直接调用处理方法并转换参数类型,
+ * 收到消息时是普通的接口调用, JIT 可以内联; 处理方法抛出的异常直接传出, 不再包装为 InvocationTargetException.
+ * <p>
+ * 参数超过 {@value #MAX_ARITY} 个的方法, 非公开的方法, 代理对象, 或者类型对当前类加载器不可见时仍然使用 {@link Method#invoke(Object, Object...)}.
+ *
+ * @author tocrhz
+ */
+final class MethodInvoker {
+    private final static Logger log = LoggerFactory.getLogger(MethodInvoker.class);
+    private final static int MAX_ARITY = 6;
+    private final static Class<?>[] CALLS = {Call0.class, Call1.class, Call2.class, Call3.class, Call4.class, Call5.class, Call6.class};
+    private final static Class<?>[] RUNS = {Run0.class, Run1.class, Run2.class, Run3.class, Run4.class, Run5.class, Run6.class};
+
+    private MethodInvoker() {
+    }
+
+    /**
+     * 创建消息处理方法
+     *
+     * @param bean   方法所在的对象
+     * @param method 方法
+     * @return IMessageHandler
+     */
+    static IMessageHandler of(Object bean, Method method) {
+        if (canGenerate(bean, method)) {
+            try {
+                return generate(bean, method);
+            } catch (Throwable e) {
+                log.debug("use reflection for method '{}': {}", method, e.getMessage());
+            }
+        }
+        return new Invoker() {
+            @Override
+            public Object handle(Object[] parameters) throws Exception {
+                return method.invoke(bean, parameters);
+            }
+        };
+    }
+
+    private static boolean canGenerate(Object bean, Method method) {
+        if (method.getParameterCount() > MAX_ARITY
+                || !Modifier.isPublic(method.getModifiers())
+                || Modifier.isStatic(method.getModifiers())
+                || AopUtils.isAopProxy(bean)
+                || !accessible(method.getDeclaringClass())
+                || !accessible(method.getReturnType())) {
+            return false;
+        }
+        for (Class<?> type : method.getParameterTypes()) {
+            if (!accessible(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 生成的类在当前类加载器中, 需要能看到并访问方法用到的类型
+     */
+    private static boolean accessible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(type.getName(), false, MethodInvoker.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static IMessageHandler generate(Object bean, Method method) throws Throwable {
+        int arity = method.getParameterCount();
+        boolean returns = method.getReturnType() != void.class;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle target = lookup.unreflect(method);
+        Class<?> result = returns ? Object.class : void.class;
+        // 接口方法的参数都是 Object, 生成的类按处理方法的实际类型转换, 基本类型拆箱
+        MethodType erased = MethodType.genericMethodType(arity + 1).changeReturnType(result);
+        MethodType instantiated = target.type().wrap().changeReturnType(result);
+        Class<?> type = returns ? CALLS[arity] : RUNS[arity];
+        CallSite site = LambdaMetafactory.metafactory(lookup, returns ? "call" : "run"
+                , MethodType.methodType(type), erased, target, instantiated);
+        Object function = site.getTarget().invoke();
+        switch (arity) {
+            case 0:
+                if (returns) {
+                    Call0 call = (Call0) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            return call.call(bean);
+                        }
+                    };
+                } else {
+                    Run0 run = (Run0) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            run.run(bean);
+                            return null;
+                        }
+                    };
+                }
+            case 1:
+                if (returns) {
+                    Call1 call = (Call1) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            return call.call(bean, p[0]);
+                        }
+                    };
+                } else {
+                    Run1 run = (Run1) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            run.run(bean, p[0]);
+                            return null;
+                        }
+                    };
+                }
+            case 2:
+                if (returns) {
+                    Call2 call = (Call2) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            return call.call(bean, p[0], p[1]);
+                        }
+                    };
+                } else {
+                    Run2 run = (Run2) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            run.run(bean, p[0], p[1]);
+                            return null;
+                        }
+                    };
+                }
+            case 3:
+                if (returns) {
+                    Call3 call = (Call3) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            return call.call(bean, p[0], p[1], p[2]);
+                        }
+                    };
+                } else {
+                    Run3 run = (Run3) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            run.run(bean, p[0], p[1], p[2]);
+                            return null;
+                        }
+                    };
+                }
+            case 4:
+                if (returns) {
+                    Call4 call = (Call4) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            return call.call(bean, p[0], p[1], p[2], p[3]);
+                        }
+                    };
+                } else {
+                    Run4 run = (Run4) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            run.run(bean, p[0], p[1], p[2], p[3]);
+                            return null;
+                        }
+                    };
+                }
+            case 5:
+                if (returns) {
+                    Call5 call = (Call5) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            return call.call(bean, p[0], p[1], p[2], p[3], p[4]);
+                        }
+                    };
+                } else {
+                    Run5 run = (Run5) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            run.run(bean, p[0], p[1], p[2], p[3], p[4]);
+                            return null;
+                        }
+                    };
+                }
+            default:
+                if (returns) {
+                    Call6 call = (Call6) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            return call.call(bean, p[0], p[1], p[2], p[3], p[4], p[5]);
+                        }
+                    };
+                } else {
+                    Run6 run = (Run6) function;
+                    return new Invoker() {
+                        @Override
+                        public Object handle(Object[] p) {
+                            run.run(bean, p[0], p[1], p[2], p[3], p[4], p[5]);
+                            return null;
+                        }
+                    };
+                }
+        }
+    }
+
+    /**
+     * 返回方法的返回值, receive 忽略返回值
+     */
+    private abstract static class Invoker implements IMessageHandler {
+        @Override
+        public void receive(Object[] parameters) throws Exception {
+            handle(parameters);
+        }
+
+        @Override
+        public abstract Object handle(Object[] parameters) throws Exception;
+    }
+
+    // 有返回值的方法, 第一个参数为方法所在的对象
+
+    interface Call0 {
+        Object call(Object bean);
+    }
+
+    interface Call1 {
+        Object call(Object bean, Object a0);
+    }
+
+    interface Call2 {
+        Object call(Object bean, Object a0, Object a1);
+    }
+
+    interface Call3 {
+        Object call(Object bean, Object a0, Object a1, Object a2);
+    }
+
+    interface Call4 {
+        Object call(Object bean, Object a0, Object a1, Object a2, Object a3);
+    }
+
+    interface Call5 {
+        Object call(Object bean, Object a0, Object a1, Object a2, Object a3, Object a4);
+    }
+
+    interface Call6 {
+        Object call(Object bean, Object a0, Object a1, Object a2, Object a3, Object a4, Object a5);
+    }
+
+    // 没有返回值的方法
+
+    interface Run0 {
+        void run(Object bean);
+    }
+
+    interface Run1 {
+        void run(Object bean, Object a0);
+    }
+
+    interface Run2 {
+        void run(Object bean, Object a0, Object a1);
+    }
+
+    interface Run3 {
+        void run(Object bean, Object a0, Object a1, Object a2);
+    }
+
+    interface Run4 {
+        void run(Object bean, Object a0, Object a1, Object a2, Object a3);
+    }
+
+    interface Run5 {
+        void run(Object bean, Object a0, Object a1, Object a2, Object a3, Object a4);
+    }
+
+    interface Run6 {
+        void run(Object bean, Object a0, Object a1, Object a2, Object a3, Object a4, Object a5);
+    }
+}
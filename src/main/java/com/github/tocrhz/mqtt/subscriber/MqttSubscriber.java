@@ -1,10 +1,8 @@
 package com.github.tocrhz.mqtt.subscriber;
 
-import com.github.tocrhz.mqtt.convert.MqttConversionService;
 import com.github.tocrhz.mqtt.exception.NullParameterException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
-import org.springframework.core.convert.converter.Converter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,14 +26,122 @@ public class MqttSubscriber {
      */
     public void accept(String clientId, String topic, MqttMessage mqttMessage) {
         Optional<TopicPair> matched = matched(clientId, topic);
-        if (matched.isPresent()) {
-            try {
-                Object[] parameters = fillParameters(matched.get(), topic, mqttMessage);
-                handler.receive(parameters);
-            } catch (NullParameterException e) {
-                log.debug("message params error: {}", e.getMessage());
-            } catch (Exception e) {
-                log.error("message handler error: {}", e.getMessage(), e);
+        matched.ifPresent(topicPair -> accept(topicPair, topic, mqttMessage));
+    }
+
+    /**
+     * 接收已经匹配好主题的消息并处理
+     *
+     * @param topicPair   匹配上的订阅主题
+     * @param topic       当前消息的主题
+     * @param mqttMessage 当前消息内容
+     * @see TopicRouter
+     */
+    public void accept(TopicPair topicPair, String topic, MqttMessage mqttMessage) {
+        TopicMatch match = topicPair.match(topic);
+        if (match != null) {
+            accept(match, mqttMessage);
+        }
+    }
+
+    /**
+     * 分发已经匹配好主题的消息.
+     * <p>
+     * 方法上配置了线程时使用自己的线程, 配置为 0 时直接处理, 否则使用客户端的线程, 客户端也没有时直接处理.
+     * 有序处理时, 按 orderingKey 指定的参数值(没有指定时按主题)分配线程.
+     *
+     * @param match       主题匹配结果
+     * @param mqttMessage 当前消息内容
+     * @param dispatcher  客户端的消息处理线程, 可以为 null
+     */
+    public void dispatch(TopicMatch match, MqttMessage mqttMessage, MessageDispatcher dispatcher) {
+        dispatch(match, mqttMessage, dispatcher, null);
+    }
+
+    /**
+     * 分发已经匹配好主题的消息, 处理完成后回调.
+     * <p>
+     * 无论处理成功, 失败, 被丢弃, 还是批量处理完成, done 都只会调用一次, 用于手动确认消息.
+     *
+     * @param match       主题匹配结果
+     * @param mqttMessage 当前消息内容
+     * @param dispatcher  客户端的消息处理线程, 可以为 null
+     * @param done        处理完成后的回调, 可以为 null
+     */
+    public void dispatch(TopicMatch match, MqttMessage mqttMessage, MessageDispatcher dispatcher, Runnable done) {
+        int threads = subscribe.threads();
+        if (threads > 0) {
+            dispatcher = this.dispatcher;
+        } else if (threads == 0) {
+            dispatcher = null;
+        }
+        if (dispatcher == null) {
+            accept(match, mqttMessage, null, done);
+            return;
+        }
+        MessageDispatcher target = dispatcher;
+        DispatchTask task = new DispatchTask() {
+            @Override
+            public void run() {
+                accept(match, mqttMessage, target, done);
+            }
+
+            @Override
+            public void dropped() {
+                if (done != null) {
+                    done.run();
+                }
+            }
+        };
+        if (dispatcher.ordered()) {
+            dispatcher.dispatch(orderingKey(match), task);
+        } else {
+            dispatcher.dispatch(task);
+        }
+    }
+
+    private String orderingKey(TopicMatch match) {
+        String orderingKey = subscribe.orderingKey();
+        if (!orderingKey.isEmpty()) {
+            String value = match.value(orderingKey);
+            if (value != null) {
+                return value;
+            }
+        }
+        return match.topic();
+    }
+
+    /**
+     * 接收已经匹配好主题的消息并处理
+     *
+     * @param match       主题匹配结果
+     * @param mqttMessage 当前消息内容
+     * @see TopicRouter
+     */
+    public void accept(TopicMatch match, MqttMessage mqttMessage) {
+        accept(match, mqttMessage, null, null);
+    }
+
+    private void accept(TopicMatch match, MqttMessage mqttMessage, MessageDispatcher dispatcher, Runnable done) {
+        if (batch != null) {
+            batch.add(match, mqttMessage, dispatcher, done);
+            return;
+        }
+        if (stream != null) {
+            stream.add(match, mqttMessage, done);
+            return;
+        }
+        boolean async = false;
+        try {
+            Object[] parameters = fillParameters(match, mqttMessage);
+            async = AsyncResults.whenDone(handler.handle(parameters), done);
+        } catch (NullParameterException e) {
+            log.debug("message params error: {}", e.getMessage());
+        } catch (Exception e) {
+            log.error("message handler error: {}", e.getMessage(), e);
+        } finally {
+            if (!async && done != null) {
+                done.run();
             }
         }
     }
@@ -44,12 +150,16 @@ public class MqttSubscriber {
     private String[] clientIds;
     private IMessageHandler handler;
     private LinkedList<ParameterModel> parameters;
+    private ArgumentResolver[] resolvers;
+    private MessageDispatcher dispatcher;
+    private BatchCollector batch;
+    private FluxBridge stream;
 
     private final LinkedList<TopicPair> topics = new LinkedList<>();
 
     public static MqttSubscriber of(SubscriberModel subscribe, Object bean, Method method) {
         LinkedList<ParameterModel> parameters = ParameterModel.of(method);
-        IMessageHandler handler = (params) -> method.invoke(bean, params);
+        IMessageHandler handler = MethodInvoker.of(bean, method);
         return of(subscribe, parameters, handler);
     }
 
@@ -65,6 +175,12 @@ public class MqttSubscriber {
         subscriber.subscribe = subscribe;
         subscriber.handler = handler;
         subscriber.parameters = parameters;
+        parameters.forEach(parameter -> parameter.defaultCodec(subscribe.codec()));
+        subscriber.resolvers = ArgumentResolver.of(parameters);
+        subscriber.batch = BatchCollector.of(subscribe, parameters, handler);
+        if (subscriber.batch == null && parameters.stream().anyMatch(ParameterModel::isFlux)) {
+            subscriber.stream = FluxBridge.of(subscribe, parameters, handler);
+        }
         return subscriber;
     }
 
@@ -114,8 +230,7 @@ public class MqttSubscriber {
     }
 
     private Optional<TopicPair> matched(final String clientId, final String topic) {
-        if (clientIds == null || clientIds.length == 0
-                || Arrays.binarySearch(clientIds, clientId) >= 0) {
+        if (containsClientId(clientId)) {
             return topics.stream()
                     .filter(pair -> pair.isMatched(topic))
                     .findFirst();
@@ -123,46 +238,13 @@ public class MqttSubscriber {
         return Optional.empty();
     }
 
-    private Object[] fillParameters(TopicPair topicPair, String topic, MqttMessage mqttMessage) {
-        HashMap<String, String> pathValueMap = topicPair.getPathValueMap(topic);
-        LinkedList<Object> objects = new LinkedList<>();
-        for (ParameterModel parameter : parameters) {
-            Class<?> target = parameter.getType();
-            String name = parameter.getName();
-            LinkedList<Converter<Object, Object>> converters = parameter.getConverters();
-            Object value = null;
-            if (target == MqttMessage.class) {
-                value = mqttMessage;
-            } else if (parameter.isPayload() && mqttMessage != null) {
-                value = MqttConversionService.getSharedInstance().fromBytes(mqttMessage.getPayload(), target, converters);
-            } else if (name != null) {
-                if (pathValueMap.containsKey(name)) {
-                    value = fromTopic(pathValueMap.get(name), target);
-                }
-            } else if (target == String.class) {
-                value = topic;
-            } else if (target.getClassLoader() != null && mqttMessage != null) {
-                value = MqttConversionService.getSharedInstance().fromBytes(mqttMessage.getPayload(), target, converters);
-            }
-            if (value == null) {
-                if (parameter.isRequired()) {
-                    throw new NullParameterException(parameter);
-                }
-                value = parameter.getDefaultValue();
-            }
-            objects.add(value);
-        }
-        return objects.toArray();
-    }
-
-    private Object fromTopic(String value, Class<?> target) {
-        if (MqttConversionService.getSharedInstance()
-                .canConvert(String.class, target)) {
-            return MqttConversionService.getSharedInstance().convert(value, target);
-        } else {
-            log.warn("Unsupported covert from {} to {}", String.class.getName(), target.getName());
-            return null;
+    private Object[] fillParameters(TopicMatch match, MqttMessage mqttMessage) {
+        ArgumentResolver[] resolvers = this.resolvers;
+        Object[] objects = new Object[resolvers.length];
+        for (int i = 0; i < resolvers.length; i++) {
+            objects[i] = resolvers[i].resolve(match, mqttMessage);
         }
+        return objects;
     }
 
     public LinkedList<TopicPair> getTopics() {
@@ -213,5 +295,82 @@ public class MqttSubscriber {
                 .forEach(param -> paramTypeMap.put(param.getName(), param.getType()));
         this.clientIds = subscribe.clients();
         this.setTopics(subscribe, paramTypeMap);
+        String orderingKey = subscribe.orderingKey();
+        if (!orderingKey.isEmpty()) {
+            for (TopicPair topic : topics) {
+                if (topic.indexOf(orderingKey) < 0) {
+                    log.warn("orderingKey '{}' is not a parameter of topic '{}', the full topic is used as ordering key.", orderingKey, topic.getTopic(false));
+                }
+            }
+        }
+        if (subscribe.threads() > 0 && this.dispatcher == null) {
+            String name = this.topics.isEmpty() ? "subscriber" : this.topics.getFirst().getTopic(false);
+            this.dispatcher = MessageDispatcher.of(name, subscribe.threads(), subscribe.queueCapacity(), subscribe.rejectedPolicy()
+                    , !subscribe.orderingKey().isEmpty());
+        }
+        if (stream != null) {
+            stream.start();
+        }
+    }
+
+    /**
+     * 检查 orderingKey 是否能生效, 使用客户端的处理线程但客户端的处理线程不按 key 有序时提示.
+     *
+     * @param clientId   客户端ID
+     * @param dispatcher 客户端的消息处理线程, 可以为 null
+     */
+    public void checkOrdering(String clientId, MessageDispatcher dispatcher) {
+        if (subscribe.orderingKey().isEmpty() || subscribe.threads() >= 0 || dispatcher == null || dispatcher.ordered()) {
+            return;
+        }
+        log.warn("mqtt client '{}' dispatcher is not ordered, orderingKey '{}' of '{}' is ignored, set 'mqtt.dispatch.ordered' to true or set threads of the subscriber."
+                , clientId, subscribe.orderingKey(), String.join(",", subscribe.value()));
+    }
+
+    /**
+     * 检查是否支持手动确认消息, 流式处理不知道消息什么时候处理完, 不能手动确认.
+     *
+     * @param clientId   客户端ID
+     * @param manualAcks 客户端是否手动确认消息
+     * @throws IllegalStateException 流式处理的方法用于手动确认消息的客户端
+     */
+    public void checkManualAcks(String clientId, boolean manualAcks) {
+        if (manualAcks && stream != null) {
+            throw new IllegalStateException("mqtt client '" + clientId + "' uses manual acks, which is not supported by Flux handler: "
+                    + String.join(",", subscribe.value()));
+        }
+    }
+
+    /**
+     * 方法自己的消息处理线程
+     *
+     * @return MessageDispatcher, 没有配置时为 null
+     */
+    public MessageDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * 是否批量处理
+     *
+     * @return boolean
+     */
+    public boolean isBatch() {
+        return batch != null;
+    }
+
+    /**
+     * 关闭方法自己的消息处理线程, 处理还没有攒够数量的批量消息
+     */
+    public void close() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        if (batch != null) {
+            batch.close();
+        }
+        if (stream != null) {
+            stream.close();
+        }
     }
 }
@@ -0,0 +1,167 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按 key 有序处理消息.
+ * <p>
+ * 每个通道一个线程和一个无锁队列, key 按 hash 分配到通道,
+ * 所以相同 key 的消息按接收顺序处理, 不同 key 的消息可以在多个核上并行.
+ * <p>
+ * 使用虚拟线程时每个通道一个虚拟线程, 通道数可以设置得很大, 减少不同 key 之间的相互阻塞.
+ * <p>
+ * {@link DispatchPolicy#CALLER_RUNS} 会打乱顺序, 在有序模式下按 {@link DispatchPolicy#BLOCK} 处理.
+ *
+ * @author tocrhz
+ */
+final class OrderedDispatcher extends MessageDispatcher {
+    private final static Logger log = LoggerFactory.getLogger(OrderedDispatcher.class);
+    private final static long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final Lane[] lanes;
+    private volatile boolean running = true;
+
+    OrderedDispatcher(String name, int lanes, int queueCapacity, DispatchPolicy policy, ThreadFactory factory) {
+        super(name, queueCapacity, policy == DispatchPolicy.CALLER_RUNS ? DispatchPolicy.BLOCK : policy);
+        if (policy == DispatchPolicy.CALLER_RUNS) {
+            log.warn("mqtt dispatcher '{}' is ordered, rejected policy CALLER_RUNS is treated as BLOCK.", name);
+        }
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane();
+            this.lanes[i].thread = factory.newThread(this.lanes[i]);
+        }
+        for (Lane lane : this.lanes) {
+            lane.thread.start();
+        }
+    }
+
+    @Override
+    public void dispatch(String key, Runnable task) {
+        if (!running) {
+            drop(task);
+            return;
+        }
+        Lane lane = lanes[indexOf(key)];
+        if (lane.size.get() >= queueCapacity) {
+            if (policy == DispatchPolicy.DROP) {
+                drop(task);
+                log.debug("mqtt dispatcher '{}' queue is full, message dropped.", name);
+                return;
+            }
+            while (lane.size.get() >= queueCapacity) {
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                if (Thread.currentThread().isInterrupted() || !running) {
+                    drop(task);
+                    return;
+                }
+            }
+        }
+        lane.offer(task);
+        // 与 shutdown 同时发生时通道线程可能已经退出, 还在队列中的任务不会再处理; 移除失败说明已经被通道线程取走
+        if (!running && lane.queue.remove(task)) {
+            lane.size.decrementAndGet();
+            drop(task);
+        }
+    }
+
+    private int indexOf(String key) {
+        if (key == null || lanes.length == 1) {
+            return 0;
+        }
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % lanes.length;
+    }
+
+    @Override
+    public boolean ordered() {
+        return true;
+    }
+
+    @Override
+    public int queueSize() {
+        int size = 0;
+        for (Lane lane : lanes) {
+            size += lane.size.get();
+        }
+        return size;
+    }
+
+    @Override
+    public int activeCount() {
+        int count = 0;
+        for (Lane lane : lanes) {
+            if (lane.active) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int lanes() {
+        return lanes.length;
+    }
+
+    @Override
+    public int laneSize(int lane) {
+        return lanes[lane].size.get();
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        for (Lane lane : lanes) {
+            LockSupport.unpark(lane.thread);
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private Thread thread;
+        private volatile boolean parked;
+        private volatile boolean active;
+
+        private void offer(Runnable task) {
+            queue.offer(task);
+            size.incrementAndGet();
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                Runnable task = queue.poll();
+                if (task == null) {
+                    parked = true;
+                    // 先标记再检查, 与 offer 的先入队再检查标记配合, 不会漏掉唤醒
+                    if (running && queue.isEmpty()) {
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                    continue;
+                }
+                size.decrementAndGet();
+                active = true;
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    log.error("mqtt dispatcher '{}' task error: {}", name, e.getMessage(), e);
+                } finally {
+                    active = false;
+                }
+            }
+        }
+    }
+}
@@ -2,25 +2,41 @@ package com.github.tocrhz.mqtt.subscriber;
 
 import com.github.tocrhz.mqtt.annotation.NamedValue;
 import com.github.tocrhz.mqtt.annotation.Payload;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.convert.converter.Converter;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * @author tocrhz
  */
 public final class ParameterModel {
     private final static Logger log = LoggerFactory.getLogger(ParameterModel.class);
+    private final static String FLUX_CLASS_NAME = "reactor.core.publisher.Flux";
 
     // 是否是消息内容, 若参数为String类型, 并且不是消息内容, 则赋值 topic.
     private boolean payload;
     private boolean required;
+    // 同一条消息匹配多个订阅方法时, 是否共用转换后的消息内容
+    private boolean shared = true;
     private Class<?> type;
+    // List, Collection 或 Flux 参数的元素类型, 批量处理或流式处理时每条消息转换成这个类型
+    private Class<?> elementType;
+    private boolean flux;
     private String name;
+    // @Payload(path) 解析后的 JSON Pointer, 每一级一个元素
+    private String[] path;
+    // 使用的编码名称, 为 null 时使用默认的转换
+    private String codec;
     private Object defaultValue;
     private LinkedList<Converter<Object, Object>> converters;
 
@@ -30,12 +46,19 @@ public final class ParameterModel {
     public static LinkedList<ParameterModel> of(Method method) {
         LinkedList<ParameterModel> parameters = new LinkedList<>();
         Class<?>[] parameterTypes = method.getParameterTypes();
+        Type[] genericTypes = method.getGenericParameterTypes();
         Annotation[][] parameterAnnotations = method.getParameterAnnotations();
         for (int i = 0; i < parameterTypes.length; i++) {
             ParameterModel model = new ParameterModel();
             parameters.add(model);
             model.type = parameterTypes[i];
             model.defaultValue = defaultValue(model.type);
+            if (model.type == List.class || model.type == Collection.class) {
+                model.elementType = elementType(genericTypes.length == parameterTypes.length ? genericTypes[i] : null);
+            } else if (FLUX_CLASS_NAME.equals(model.type.getName())) {
+                model.flux = true;
+                model.elementType = elementType(genericTypes.length == parameterTypes.length ? genericTypes[i] : null);
+            }
             Annotation[] annotations = parameterAnnotations[i];
             if (annotations != null) {
                 for (Annotation annotation : annotations) {
@@ -49,6 +72,9 @@ public final class ParameterModel {
                         model.payload = true;
                         model.required = model.required || payload.required();
                         model.converters = toConverters(payload.value());
+                        model.shared = payload.shared();
+                        model.path = compilePath(payload.path());
+                        model.codec = payload.codec().isEmpty() ? null : payload.codec();
                     }
                 }
             }
@@ -81,6 +107,10 @@ public final class ParameterModel {
         return required;
     }
 
+    public boolean isShared() {
+        return shared;
+    }
+
     public Class<?> getType() {
         return type;
     }
@@ -93,6 +123,98 @@ public final class ParameterModel {
         return converters;
     }
 
+    /**
+     * List, Collection 或 Flux 参数的元素类型, 其他参数为 null.
+     * 没有泛型时为 {@link MqttMessage}
+     *
+     * @return Class
+     */
+    public Class<?> getElementType() {
+        return elementType;
+    }
+
+    /**
+     * 是否可以作为批量处理的参数
+     *
+     * @return boolean
+     */
+    public boolean isBatch() {
+        return elementType != null && !flux;
+    }
+
+    /**
+     * 是否为 reactor 的 Flux 参数, 用于流式处理
+     *
+     * @return boolean
+     */
+    public boolean isFlux() {
+        return flux;
+    }
+
+    /**
+     * {@code @Payload(path)} 的每一级, 没有配置时为 null
+     *
+     * @return String[]
+     */
+    public String[] getPath() {
+        return path;
+    }
+
+    /**
+     * 使用的编码名称, 见 {@link com.github.tocrhz.mqtt.convert.PayloadCodec}
+     *
+     * @return String, 使用默认的转换时为 null
+     */
+    public String getCodec() {
+        return codec;
+    }
+
+    /**
+     * 参数上没有配置编码时, 使用订阅方法上配置的编码; byte[] 和视图类型的参数原样取消息内容, 不使用
+     *
+     * @param codec 订阅方法上配置的编码
+     */
+    void defaultCodec(String codec) {
+        if (this.codec == null && codec != null && !codec.isEmpty()
+                && !ArgumentResolver.isRaw(elementType != null ? elementType : type)) {
+            this.codec = codec;
+        }
+    }
+
+    /**
+     * 解析 JSON Pointer, 如 {@code /metrics/temp}, {@code ~1} 和 {@code ~0} 分别转为 {@code /} 和 {@code ~}
+     */
+    private static String[] compilePath(String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        if (path.charAt(0) != '/') {
+            log.warn("Payload path should start with '/': {}", path);
+            path = "/" + path;
+        }
+        String[] segments = path.substring(1).split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = segments[i].replace("~1", "/").replace("~0", "~");
+        }
+        return segments;
+    }
+
+    private static Class<?> elementType(Type type) {
+        if (type instanceof ParameterizedType) {
+            Type arg = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (arg instanceof WildcardType) {
+                arg = ((WildcardType) arg).getUpperBounds()[0];
+            }
+            if (arg instanceof ParameterizedType) {
+                arg = ((ParameterizedType) arg).getRawType();
+            }
+            if (arg instanceof Class && arg != Object.class) {
+                return (Class<?>) arg;
+            }
+        }
+        return MqttMessage.class;
+    }
+
     public Object getDefaultValue() {
         return defaultValue;
     }
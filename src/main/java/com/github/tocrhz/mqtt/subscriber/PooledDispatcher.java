@@ -0,0 +1,84 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池处理消息, 不保证顺序.
+ *
+ * @author tocrhz
+ */
+final class PooledDispatcher extends MessageDispatcher {
+    private final static Logger log = LoggerFactory.getLogger(PooledDispatcher.class);
+
+    private final ThreadPoolExecutor executor;
+
+    PooledDispatcher(String name, int threads, int queueCapacity, DispatchPolicy policy) {
+        super(name, queueCapacity, policy);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory(name), rejectedHandler(policy));
+    }
+
+    @Override
+    public void dispatch(String key, Runnable task) {
+        executor.execute(task);
+    }
+
+    @Override
+    public boolean ordered() {
+        return false;
+    }
+
+    @Override
+    public int queueSize() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public int activeCount() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private RejectedExecutionHandler rejectedHandler(DispatchPolicy policy) {
+        switch (policy) {
+            case CALLER_RUNS:
+                // 关闭后 JDK 的 CallerRunsPolicy 直接丢掉任务, 不会通知任务
+                return (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        drop(task);
+                        return;
+                    }
+                    task.run();
+                };
+            case DROP:
+                return (task, executor) -> {
+                    drop(task);
+                    log.debug("mqtt dispatcher '{}' queue is full, message dropped.", name);
+                };
+            case BLOCK:
+            default:
+                return (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        drop(task);
+                        return;
+                    }
+                    try {
+                        executor.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        drop(task);
+                    }
+                };
+        }
+    }
+}
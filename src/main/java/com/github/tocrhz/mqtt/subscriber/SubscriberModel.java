@@ -7,6 +7,13 @@ public class SubscriberModel {
     private final int[] qos;
     private final String[] clients;
     private final String[] groups;
+    private int threads = -1;
+    private int queueCapacity = 1024;
+    private DispatchPolicy rejectedPolicy = DispatchPolicy.BLOCK;
+    private String orderingKey = "";
+    private int batchSize = 0;
+    private long batchTimeoutMs = 1000;
+    private String codec = "";
 
     public String[] value() {
         return this.value;
@@ -24,6 +31,69 @@ public class SubscriberModel {
         return this.groups;
     }
 
+    public int threads() {
+        return this.threads;
+    }
+
+    public SubscriberModel threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public int queueCapacity() {
+        return this.queueCapacity;
+    }
+
+    public SubscriberModel queueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public DispatchPolicy rejectedPolicy() {
+        return this.rejectedPolicy;
+    }
+
+    public SubscriberModel rejectedPolicy(DispatchPolicy rejectedPolicy) {
+        this.rejectedPolicy = rejectedPolicy;
+        return this;
+    }
+
+    public String orderingKey() {
+        return this.orderingKey;
+    }
+
+    public SubscriberModel orderingKey(String orderingKey) {
+        this.orderingKey = orderingKey == null ? "" : orderingKey;
+        return this;
+    }
+
+    public int batchSize() {
+        return this.batchSize;
+    }
+
+    public SubscriberModel batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public long batchTimeoutMs() {
+        return this.batchTimeoutMs;
+    }
+
+    public SubscriberModel batchTimeoutMs(long batchTimeoutMs) {
+        this.batchTimeoutMs = batchTimeoutMs;
+        return this;
+    }
+
+    public String codec() {
+        return this.codec;
+    }
+
+    public SubscriberModel codec(String codec) {
+        this.codec = codec == null ? "" : codec;
+        return this;
+    }
+
     public SubscriberModel(String[] value, int[] qos, String[] clients, String[] groups) {
         this.value = value == null ? new String[0] : value;
         this.qos = qos == null ? new int[0] : qos;
@@ -32,6 +102,13 @@ public class SubscriberModel {
     }
 
     public static SubscriberModel of(MqttSubscribe subscribe) {
-        return new SubscriberModel(subscribe.value(), subscribe.qos(), subscribe.clients(), subscribe.groups());
+        return new SubscriberModel(subscribe.value(), subscribe.qos(), subscribe.clients(), subscribe.groups())
+                .threads(subscribe.threads())
+                .queueCapacity(subscribe.queueCapacity())
+                .rejectedPolicy(subscribe.rejectedPolicy())
+                .orderingKey(subscribe.orderingKey())
+                .batchSize(subscribe.batchSize())
+                .batchTimeoutMs(subscribe.batchTimeoutMs())
+                .codec(subscribe.codec());
     }
 }
@@ -0,0 +1,78 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+/**
+ * 主题匹配结果.
+ * <p>
+ * 只记录参数在主题中的位置, 调用 {@link #value(int)} 时才截取字符串,
+ * 同一条消息的多个参数共用一个结果, 不需要重复匹配.
+ *
+ * @author tocrhz
+ */
+public final class TopicMatch {
+    private final static int[] NO_BOUNDS = new int[0];
+
+    private final TopicPair pair;
+    private final String topic;
+    private final int[] bounds;
+    // 同一条消息匹配多个订阅方法时共用, 否则为 null
+    DecodeCache decoded;
+    // 处理方法的 @Payload(path) 参数一次解析出的值, 每个匹配结果只属于一个处理方法
+    Object projection;
+    Object[] projected;
+
+    TopicMatch(TopicPair pair, String topic, int[] bounds) {
+        this.pair = pair;
+        this.topic = topic;
+        this.bounds = bounds == null ? NO_BOUNDS : bounds;
+    }
+
+    /**
+     * 匹配上的订阅主题
+     *
+     * @return TopicPair
+     */
+    public TopicPair pair() {
+        return pair;
+    }
+
+    /**
+     * 当前消息的主题
+     *
+     * @return String
+     */
+    public String topic() {
+        return topic;
+    }
+
+    /**
+     * 参数数量
+     *
+     * @return int
+     */
+    public int size() {
+        return bounds.length / 2;
+    }
+
+    /**
+     * 按位置取参数值
+     *
+     * @param index 参数位置
+     * @return 参数值
+     */
+    public String value(int index) {
+        if (index < 0 || index * 2 >= bounds.length) {
+            return null;
+        }
+        return topic.substring(bounds[index * 2], bounds[index * 2 + 1]);
+    }
+
+    /**
+     * 按名称取参数值
+     *
+     * @param name 参数名
+     * @return 参数值, 不存在时返回 null
+     */
+    public String value(String name) {
+        return value(pair.indexOf(name));
+    }
+}
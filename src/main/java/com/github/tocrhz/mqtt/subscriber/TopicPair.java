@@ -6,24 +6,20 @@ import org.springframework.util.Assert;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Objects;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * If {@link com.github.tocrhz.mqtt.annotation.NamedValue} is used, use regular matching,
+ * If {@link com.github.tocrhz.mqtt.annotation.NamedValue} is used, use {@link TopicTemplate} matching,
  * if not, use {@link MqttTopic#isMatched(String, String)} matching
  *
  * @author tocrhz
  */
 @SuppressWarnings("unused")
 public class TopicPair {
-    private final static Pattern TO_PATTERN = Pattern.compile("\\{(\\w+)}");
     private final static Pattern TO_TOPIC = Pattern.compile("[^/]*\\{\\w+}[^/]*");
-    private final static String STRING_PARAM = "([^/]+)";
-    private final static String NUMBER_PARAM = "(\\\\d+(:?\\\\.\\\\d+)?)";
 
     private String topic;
-    private Pattern pattern;
+    private TopicTemplate template;
     private TopicParam[] params;
     private int qos;
     private String group;
@@ -39,7 +35,7 @@ public class TopicPair {
         TopicPair topicPair = new TopicPair();
         if (topic.contains("{")) {
             LinkedList<TopicParam> params = new LinkedList<>();
-            topicPair.pattern = toPattern(topic, params, paramTypeMap);
+            topicPair.template = TopicTemplate.compile(topic, params, paramTypeMap);
             topicPair.params = params.toArray(new TopicParam[0]);
             topicPair.topic = TO_TOPIC.matcher(topic).replaceAll("+");
         } else {
@@ -51,32 +47,6 @@ public class TopicPair {
         return topicPair;
     }
 
-    private static Pattern toPattern(String topic, LinkedList<TopicParam> params, HashMap<String, Class<?>> paramTypeMap) {
-        String pattern = replaceSymbols(topic);
-        Matcher matcher = TO_PATTERN.matcher(pattern);
-        StringBuffer builder = new StringBuffer("^");
-        int group = 1;
-        while (matcher.find()) {
-            String paramName = matcher.group(1);
-            params.add(new TopicParam(paramName, group));
-            if (paramTypeMap.containsKey(paramName)) {
-                Class<?> paramType = paramTypeMap.get(paramName);
-                if (Number.class.isAssignableFrom(paramType)) {
-                    matcher.appendReplacement(builder, NUMBER_PARAM);
-                    ++group;
-                } else {
-                    matcher.appendReplacement(builder, STRING_PARAM);
-                }
-            } else {
-                matcher.appendReplacement(builder, STRING_PARAM);
-            }
-            ++group;
-        }
-        matcher.appendTail(builder);
-        builder.append("$");
-        return Pattern.compile(builder.toString());
-    }
-
     public String getTopic(boolean enableShare) {
         if (enableShare) {
             if (this.group != null && !this.group.isEmpty()) {
@@ -90,28 +60,67 @@ public class TopicPair {
         return qos;
     }
 
+    boolean hasPattern() {
+        return this.template != null;
+    }
+
     public boolean isMatched(String topic) {
-        if (this.pattern != null) {
-            return pattern.matcher(topic).matches();
+        if (this.template != null) {
+            return template.match(topic, null);
         } else {
             return MqttTopic.isMatched(this.topic, topic);
         }
     }
 
+    /**
+     * 匹配主题并记录参数位置, 只扫描一遍主题.
+     *
+     * @param topic 当前消息的主题
+     * @return 匹配结果, 不匹配时返回 null
+     */
+    public TopicMatch match(String topic) {
+        if (this.template != null) {
+            int[] bounds = new int[template.size() * 2];
+            if (template.match(topic, bounds)) {
+                return new TopicMatch(this, topic, bounds);
+            }
+            return null;
+        } else if (MqttTopic.isMatched(this.topic, topic)) {
+            return new TopicMatch(this, topic, null);
+        }
+        return null;
+    }
+
     public HashMap<String, String> getPathValueMap(String topic) {
         HashMap<String, String> map = new HashMap<>();
-        if (pattern != null) {
-            Matcher matcher = pattern.matcher(topic);
-            if (matcher.find()) {
+        if (template != null) {
+            TopicMatch match = match(topic);
+            if (match != null) {
                 for (TopicParam param : params) {
-                    String group = matcher.group(param.getAt());
-                    map.put(param.getName(), group);
+                    map.put(param.getName(), match.value(param.getAt()));
                 }
             }
         }
         return map;
     }
 
+    /**
+     * 参数在主题中的位置
+     *
+     * @param name 参数名
+     * @return 位置, 不存在时返回 -1
+     */
+    int indexOf(String name) {
+        if (params != null) {
+            for (int i = 0; i < params.length; i++) {
+                if (params[i].getName().equals(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -126,37 +135,6 @@ public class TopicPair {
     }
 
     public int order() {
-        return this.pattern == null ? 1 : -params.length;
-    }
-
-    private static String replaceSymbols(String topic) {
-        StringBuilder sb = new StringBuilder();
-        char[] chars = topic.toCharArray();
-        for (char ch : chars) {
-            switch (ch) {
-                case '$':
-                case '^':
-                case '.':
-                case '?':
-                case '*':
-                case '|':
-                case '(':
-                case ')':
-                case '[':
-                case ']':
-                case '\\':
-                    sb.append('\\').append(ch);
-                    break;
-                case '+':
-                    sb.append("[^/]+");
-                    break;
-                case '#':
-                    sb.append(".*");
-                    break;
-                default:
-                    sb.append(ch);
-            }
-        }
-        return sb.toString();
+        return this.template == null ? 1 : -params.length;
     }
 }
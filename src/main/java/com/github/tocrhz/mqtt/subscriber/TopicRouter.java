@@ -0,0 +1,214 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * 按主题层级构建的路由表(trie), 每个客户端一份.
+ * <p>
+ * 每一层是一个节点, 普通层级按名称查找, '+' 和 '#' 单独作为分支,
+ * 所以一次匹配的耗时只和主题的层级数有关, 和订阅方法的数量无关.
+ *
+ * @author tocrhz
+ */
+public final class TopicRouter {
+    private final static List<Route> EMPTY = Collections.emptyList();
+
+    private final Node root = new Node();
+    private int size;
+
+    private TopicRouter() {
+    }
+
+    /**
+     * 创建路由表, 需要在 {@link MqttSubscriber#resolveEmbeddedValue} 之后调用.
+     *
+     * @param subscribers 当前客户端处理消息的方法集合
+     * @return TopicRouter
+     */
+    public static TopicRouter of(MqttSubscriber[] subscribers) {
+        TopicRouter router = new TopicRouter();
+        for (int index = 0; index < subscribers.length; index++) {
+            MqttSubscriber subscriber = subscribers[index];
+            LinkedList<TopicPair> topics = subscriber.getTopics();
+            int rank = 0;
+            for (TopicPair pair : topics) {
+                router.add(new Entry(index, rank++, subscriber, pair));
+            }
+        }
+        return router;
+    }
+
+    private void add(Entry entry) {
+        String[] levels = split(entry.pair.getTopic(false));
+        Node node = root;
+        for (String level : levels) {
+            node = node.child(level);
+        }
+        node.entries.add(entry);
+        ++size;
+    }
+
+    /**
+     * 查找匹配主题的订阅.
+     * <p>
+     * 每个订阅方法最多返回一个, 取其主题中排序靠前的那个, 结果按订阅方法的注册顺序排列.
+     *
+     * @param topic 当前消息的主题
+     * @return 匹配的订阅
+     */
+    public List<Route> route(String topic) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        String[] levels = split(topic);
+        ArrayList<Route> matched = new ArrayList<>(4);
+        collect(root, levels, 0, topic, matched);
+        if (matched.size() > 1) {
+            matched.sort(Route::compareTo);
+            // 同一个订阅方法只保留第一个
+            int last = 0;
+            for (int i = 1; i < matched.size(); i++) {
+                if (matched.get(i).entry.index != matched.get(last).entry.index) {
+                    matched.set(++last, matched.get(i));
+                }
+            }
+            matched.subList(last + 1, matched.size()).clear();
+            if (matched.size() > 1) {
+                // 多个订阅方法共用转换后的消息内容
+                DecodeCache decoded = new DecodeCache();
+                for (Route route : matched) {
+                    route.match.decoded = decoded;
+                }
+            }
+        }
+        return matched;
+    }
+
+    private static void collect(Node node, String[] levels, int at, String topic, ArrayList<Route> matched) {
+        if (node.hash != null) {
+            // '#' 匹配剩余的所有层级(包括父级本身)
+            verify(node.hash.entries, topic, matched);
+        }
+        if (at == levels.length) {
+            verify(node.entries, topic, matched);
+            return;
+        }
+        if (node.children != null) {
+            Node child = node.children.get(levels[at]);
+            if (child != null) {
+                collect(child, levels, at + 1, topic, matched);
+            }
+        }
+        if (node.plus != null) {
+            collect(node.plus, levels, at + 1, topic, matched);
+        }
+    }
+
+    private static void verify(ArrayList<Entry> entries, String topic, ArrayList<Route> matched) {
+        for (Entry entry : entries) {
+            if (entry.pair.hasPattern()) {
+                // 带参数的主题在路由表中按 '+' 存放, 需要再校验一下参数部分, 同时记录参数位置
+                TopicMatch match = entry.pair.match(topic);
+                if (match != null) {
+                    matched.add(new Route(entry, match));
+                }
+            } else {
+                matched.add(new Route(entry, new TopicMatch(entry.pair, topic, null)));
+            }
+        }
+    }
+
+    private static String[] split(String topic) {
+        int count = 1;
+        for (int i = 0; i < topic.length(); i++) {
+            if (topic.charAt(i) == '/') {
+                ++count;
+            }
+        }
+        String[] levels = new String[count];
+        int start = 0, at = 0;
+        for (int i = 0; i < topic.length(); i++) {
+            if (topic.charAt(i) == '/') {
+                levels[at++] = topic.substring(start, i);
+                start = i + 1;
+            }
+        }
+        levels[at] = topic.substring(start);
+        return levels;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static final class Node {
+        private HashMap<String, Node> children;
+        private Node plus;
+        private Node hash;
+        private final ArrayList<Entry> entries = new ArrayList<>(1);
+
+        private Node child(String level) {
+            if ("+".equals(level)) {
+                return plus == null ? (plus = new Node()) : plus;
+            }
+            if ("#".equals(level)) {
+                return hash == null ? (hash = new Node()) : hash;
+            }
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(level, k -> new Node());
+        }
+    }
+
+    private static final class Entry {
+        private final int index;
+        private final int rank;
+        private final MqttSubscriber subscriber;
+        private final TopicPair pair;
+
+        private Entry(int index, int rank, MqttSubscriber subscriber, TopicPair pair) {
+            this.index = index;
+            this.rank = rank;
+            this.subscriber = subscriber;
+            this.pair = pair;
+        }
+    }
+
+    /**
+     * 一条路由, 订阅方法和它的主题匹配结果.
+     */
+    public static final class Route implements Comparable<Route> {
+        private final Entry entry;
+        private final TopicMatch match;
+
+        private Route(Entry entry, TopicMatch match) {
+            this.entry = entry;
+            this.match = match;
+        }
+
+        public MqttSubscriber subscriber() {
+            return entry.subscriber;
+        }
+
+        public TopicPair pair() {
+            return entry.pair;
+        }
+
+        public TopicMatch match() {
+            return match;
+        }
+
+        @Override
+        public int compareTo(Route o) {
+            if (entry.index != o.entry.index) {
+                return Integer.compare(entry.index, o.entry.index);
+            }
+            return Integer.compare(entry.rank, o.entry.rank);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * 带参数的主题模板, 按层级匹配, 代替正则表达式.
+ * <p>
+ * 支持的层级: 普通文本, '+', '#', 以及包含参数的层级, 如 '{id}', 'dev-{id}', '{a}-{b}'.
+ * 匹配时只扫描一遍主题, 同时记录参数的位置, 需要时才截取字符串.
+ * <p>
+ * 参数类型为 {@link Number} 时, 只匹配数字(等同于原来的正则 '\d+(:?\.\d+)?'), 其他类型匹配任意非空内容.
+ *
+ * @author tocrhz
+ */
+final class TopicTemplate {
+    private final static int LITERAL = 0;
+    private final static int PLUS = 1;
+    private final static int HASH = 2;
+    private final static int TEMPLATE = 3;
+
+    private final int[] kinds;
+    private final String[] literals;
+    private final Part[][] parts;
+    private final int size;
+
+    private TopicTemplate(int[] kinds, String[] literals, Part[][] parts, int size) {
+        this.kinds = kinds;
+        this.literals = literals;
+        this.parts = parts;
+        this.size = size;
+    }
+
+    /**
+     * 解析主题模板
+     *
+     * @param topic        主题模板
+     * @param params       输出参数列表, 按出现顺序
+     * @param paramTypeMap 参数类型
+     * @return TopicTemplate
+     */
+    static TopicTemplate compile(String topic, LinkedList<TopicParam> params, HashMap<String, Class<?>> paramTypeMap) {
+        String[] levels = topic.split("/", -1);
+        int[] kinds = new int[levels.length];
+        String[] literals = new String[levels.length];
+        Part[][] parts = new Part[levels.length][];
+        for (int i = 0; i < levels.length; i++) {
+            String level = levels[i];
+            if ("+".equals(level)) {
+                kinds[i] = PLUS;
+            } else if ("#".equals(level)) {
+                kinds[i] = HASH;
+            } else if (level.indexOf('{') >= 0) {
+                Part[] compiled = compileLevel(level, params, paramTypeMap);
+                if (compiled == null) {
+                    kinds[i] = LITERAL;
+                    literals[i] = level;
+                } else {
+                    kinds[i] = TEMPLATE;
+                    parts[i] = compiled;
+                }
+            } else {
+                kinds[i] = LITERAL;
+                literals[i] = level;
+            }
+        }
+        return new TopicTemplate(kinds, literals, parts, params.size());
+    }
+
+    private static Part[] compileLevel(String level, LinkedList<TopicParam> params, HashMap<String, Class<?>> paramTypeMap) {
+        ArrayList<Part> parts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < level.length()) {
+            char ch = level.charAt(i);
+            int close = ch == '{' ? level.indexOf('}', i + 1) : -1;
+            if (close > i + 1 && isWord(level, i + 1, close)) {
+                if (literal.length() > 0) {
+                    parts.add(new Part(literal.toString(), -1, false));
+                    literal.setLength(0);
+                }
+                String name = level.substring(i + 1, close);
+                Class<?> type = paramTypeMap.get(name);
+                boolean number = type != null && Number.class.isAssignableFrom(type);
+                parts.add(new Part(null, params.size(), number));
+                params.add(new TopicParam(name, params.size()));
+                i = close + 1;
+            } else {
+                literal.append(ch);
+                ++i;
+            }
+        }
+        if (literal.length() > 0) {
+            parts.add(new Part(literal.toString(), -1, false));
+        }
+        for (Part part : parts) {
+            if (part.literal == null) {
+                return parts.toArray(new Part[0]);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isWord(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char ch = text.charAt(i);
+            if (!(isDigit(ch) || (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || ch == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 参数数量
+     *
+     * @return int
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 匹配主题, 同时记录参数位置.
+     *
+     * @param topic  当前消息的主题
+     * @param bounds 参数位置, 长度为 size*2, 可以为 null(只判断是否匹配)
+     * @return 是否匹配
+     */
+    boolean match(String topic, int[] bounds) {
+        int length = topic.length();
+        int start = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            if (start > length) {
+                // 主题的层级比模板少
+                return false;
+            }
+            if (kinds[i] == HASH) {
+                // 与原来的正则 '.*' 一致, 匹配剩余的所有内容
+                return true;
+            }
+            int end = topic.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            switch (kinds[i]) {
+                case LITERAL:
+                    String literal = literals[i];
+                    if (end - start != literal.length() || !topic.startsWith(literal, start)) {
+                        return false;
+                    }
+                    break;
+                case PLUS:
+                    if (end == start) {
+                        return false;
+                    }
+                    break;
+                default:
+                    if (!matchParts(topic, start, end, parts[i], 0, bounds)) {
+                        return false;
+                    }
+            }
+            start = end + 1;
+        }
+        return start > length;
+    }
+
+    private static boolean matchParts(String topic, int from, int to, Part[] parts, int at, int[] bounds) {
+        if (at == parts.length) {
+            return from == to;
+        }
+        Part part = parts[at];
+        if (part.literal != null) {
+            int len = part.literal.length();
+            return to - from >= len
+                    && topic.startsWith(part.literal, from)
+                    && matchParts(topic, from + len, to, parts, at + 1, bounds);
+        }
+        // 参数尽量多匹配, 与正则的贪婪匹配一致
+        int end = to;
+        if (part.number) {
+            end = numberEnd(topic, from, to);
+        }
+        for (; end > from; end--) {
+            if (part.number && !isNumber(topic, from, end)) {
+                continue;
+            }
+            if (matchParts(topic, end, to, parts, at + 1, bounds)) {
+                if (bounds != null) {
+                    bounds[part.index * 2] = from;
+                    bounds[part.index * 2 + 1] = end;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int numberEnd(String topic, int from, int to) {
+        int i = from;
+        while (i < to && isNumberChar(topic.charAt(i))) {
+            ++i;
+        }
+        return i;
+    }
+
+    private static boolean isNumberChar(char ch) {
+        return isDigit(ch) || ch == '.' || ch == ':';
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    // \d+(:?\.\d+)?
+    private static boolean isNumber(String topic, int from, int to) {
+        int i = from;
+        while (i < to && isDigit(topic.charAt(i))) {
+            ++i;
+        }
+        if (i == from) {
+            return false;
+        }
+        if (i == to) {
+            return true;
+        }
+        if (topic.charAt(i) == ':') {
+            ++i;
+        }
+        if (i >= to || topic.charAt(i) != '.') {
+            return false;
+        }
+        int digits = ++i;
+        while (i < to && isDigit(topic.charAt(i))) {
+            ++i;
+        }
+        return i == to && i > digits;
+    }
+
+    private static final class Part {
+        private final String literal;
+        private final int index;
+        private final boolean number;
+
+        private Part(String literal, int index, boolean number) {
+            this.literal = literal;
+            this.index = index;
+            this.number = number;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 每条消息一个虚拟线程, 不保证顺序.
+ * <p>
+ * 不使用队列, 线程数限制同时处理的消息数量, 达到上限时按 {@link DispatchPolicy} 处理.
+ * 适合处理方法中有阻塞 I/O (JDBC, HTTP 等) 的场景, 可以设置成几千而不占用平台线程.
+ *
+ * @author tocrhz
+ */
+final class VirtualDispatcher extends MessageDispatcher {
+    private final static Logger log = LoggerFactory.getLogger(VirtualDispatcher.class);
+
+    private final int threads;
+    private final Semaphore permits;
+    private final ThreadFactory factory;
+    private volatile boolean running = true;
+
+    VirtualDispatcher(String name, int threads, DispatchPolicy policy, ThreadFactory factory) {
+        super(name, 0, policy);
+        this.threads = threads;
+        this.permits = new Semaphore(threads);
+        this.factory = factory;
+    }
+
+    @Override
+    public void dispatch(String key, Runnable task) {
+        if (!running) {
+            drop(task);
+            return;
+        }
+        if (!permits.tryAcquire()) {
+            switch (policy) {
+                case DROP:
+                    drop(task);
+                    log.debug("mqtt dispatcher '{}' is busy, message dropped.", name);
+                    return;
+                case CALLER_RUNS:
+                    task.run();
+                    return;
+                case BLOCK:
+                default:
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        drop(task);
+                        return;
+                    }
+            }
+        }
+        factory.newThread(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("mqtt dispatcher '{}' task error: {}", name, e.getMessage(), e);
+            } finally {
+                permits.release();
+            }
+        }).start();
+    }
+
+    @Override
+    public boolean ordered() {
+        return false;
+    }
+
+    @Override
+    public int queueSize() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public int activeCount() {
+        return threads - permits.availablePermits();
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+    }
+}
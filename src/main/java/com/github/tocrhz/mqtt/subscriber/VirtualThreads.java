@@ -0,0 +1,69 @@
+package com.github.tocrhz.mqtt.subscriber;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程支持, 运行在 Java 21 及以上版本时可用.
+ * <p>
+ * 项目按 Java 8 编译, 所以通过反射查找 {@code Thread.ofVirtual()}, 在低版本上 {@link #supported()} 返回 false.
+ *
+ * @author tocrhz
+ */
+final class VirtualThreads {
+    private final static Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private final static Method OF_VIRTUAL;
+    private final static Method NAME;
+    private final static Method FACTORY;
+
+    static {
+        Method ofVirtual = null, name = null, factory = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+        } catch (ReflectiveOperationException | LinkageError ignored) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前 JVM 是否支持虚拟线程
+     *
+     * @return boolean
+     */
+    static boolean supported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 创建虚拟线程工厂, 线程名为 "mqtt-{name}-v{n}"
+     *
+     * @param name 名称
+     * @return ThreadFactory, 不支持时返回 null
+     */
+    static ThreadFactory factory(String name) {
+        if (OF_VIRTUAL == null) {
+            return null;
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = NAME.invoke(builder, "mqtt-" + name + "-v", 1L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Create virtual thread factory failed: {}", e.getMessage());
+            return null;
+        }
+    }
+}